@@ -17,7 +17,10 @@ import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.ClasspathClassProvider;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexCache;
+import cuchaz.enigma.analysis.index.ReferenceIndexingMode;
 import cuchaz.enigma.api.EnigmaPlugin;
 import cuchaz.enigma.api.EnigmaPluginContext;
 import cuchaz.enigma.api.service.EnigmaService;
@@ -25,9 +28,11 @@ import cuchaz.enigma.api.service.EnigmaServiceFactory;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 import cuchaz.enigma.api.service.JarIndexerService;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,10 +41,13 @@ import java.util.ServiceLoader;
 public class Enigma {
 	private final EnigmaProfile profile;
 	private final EnigmaServices services;
+	@Nullable
+	private final JarIndexCache indexCache;
 
-	private Enigma(EnigmaProfile profile, EnigmaServices services) {
+	private Enigma(EnigmaProfile profile, EnigmaServices services, @Nullable JarIndexCache indexCache) {
 		this.profile = profile;
 		this.services = services;
+		this.indexCache = indexCache;
 	}
 
 	public static Enigma create() {
@@ -51,8 +59,28 @@ public class Enigma {
 	}
 
 	public EnigmaProject openJar(Path path, ProgressListener progress) throws IOException {
-		ClassCache classCache = ClassCache.of(path);
-		JarIndex jarIndex = classCache.index(progress);
+		return openJar(path, Collections.emptyList(), progress);
+	}
+
+	/**
+	 * Opens a jar along with the library jars it depends on. Only the declarations and hierarchy
+	 * of the library classes that the jar extends are indexed.
+	 */
+	public EnigmaProject openJar(Path path, List<Path> libraries, ProgressListener progress) throws IOException {
+		ClassCache classCache = ClassCache.of(path, profile.getClassCacheBytes());
+		ReferenceIndexingMode referenceMode = profile.getReferenceIndexingMode();
+
+		JarIndex jarIndex;
+		if (!libraries.isEmpty()) {
+			// snapshots do not cover the libraries, so this is always indexed from scratch
+			try (ClasspathClassProvider libraryProvider = new ClasspathClassProvider(libraries, profile.getClassCacheBytes())) {
+				jarIndex = classCache.index(referenceMode, libraryProvider, progress);
+			}
+		} else if (indexCache != null) {
+			jarIndex = indexCache.index(path, classCache, referenceMode, progress);
+		} else {
+			jarIndex = classCache.index(referenceMode, progress);
+		}
 
 		services.get(JarIndexerService.TYPE).forEach(indexer -> indexer.acceptJar(classCache, jarIndex));
 
@@ -70,6 +98,7 @@ public class Enigma {
 	public static class Builder {
 		private EnigmaProfile profile = EnigmaProfile.EMPTY;
 		private Iterable<EnigmaPlugin> plugins = ServiceLoader.load(EnigmaPlugin.class);
+		private Path indexCacheDirectory;
 
 		private Builder() {
 		}
@@ -86,6 +115,15 @@ public class Enigma {
 			return this;
 		}
 
+		/**
+		 * Keeps snapshots of built jar indexes in the given directory, so that jars which were opened
+		 * before can skip indexing. Snapshots are not kept unless a directory is set.
+		 */
+		public Builder setIndexCacheDirectory(@Nullable Path indexCacheDirectory) {
+			this.indexCacheDirectory = indexCacheDirectory;
+			return this;
+		}
+
 		public Enigma build() {
 			PluginContext pluginContext = new PluginContext(profile);
 			for (EnigmaPlugin plugin : plugins) {
@@ -93,7 +131,8 @@ public class Enigma {
 			}
 
 			EnigmaServices services = pluginContext.buildServices();
-			return new Enigma(profile, services);
+			JarIndexCache indexCache = indexCacheDirectory != null ? new JarIndexCache(indexCacheDirectory) : null;
+			return new Enigma(profile, services, indexCache);
 		}
 	}
 
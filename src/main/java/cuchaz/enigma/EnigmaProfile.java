@@ -10,6 +10,8 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.ReferenceIndexingMode;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
@@ -37,6 +39,12 @@ public final class EnigmaProfile {
 	@SerializedName("mapping_save_parameters")
 	private final MappingSaveParameters mappingSaveParameters = null;
 
+	@SerializedName("reference_indexing")
+	private final ReferenceIndexingMode referenceIndexingMode = null;
+
+	@SerializedName("class_cache_megabytes")
+	private final Long classCacheMegabytes = null;
+
 	private EnigmaProfile(ServiceContainer serviceProfiles) {
 		this.serviceProfiles = serviceProfiles;
 	}
@@ -77,6 +85,19 @@ public final class EnigmaProfile {
 		return mappingSaveParameters == null ? EnigmaProfile.DEFAULT_MAPPING_SAVE_PARAMETERS : mappingSaveParameters;
 	}
 
+	public ReferenceIndexingMode getReferenceIndexingMode() {
+		//noinspection ConstantConditions
+		return referenceIndexingMode == null ? ReferenceIndexingMode.FULL : referenceIndexingMode;
+	}
+
+	/**
+	 * Returns the memory budget of the class cache, in bytes.
+	 */
+	public long getClassCacheBytes() {
+		//noinspection ConstantConditions
+		return classCacheMegabytes == null ? ClassCache.DEFAULT_CACHE_BYTES : classCacheMegabytes * 1024 * 1024;
+	}
+
 	public static class Service {
 		private final String id;
 		private final Map<String, String> args;
@@ -80,6 +80,7 @@ public class EnigmaProject {
 		Collection<Entry<?>> dropped = dropMappings(mappings, progress);
 		for (Entry<?> entry : dropped) {
 			mappings.trackChange(entry);
+			mapper.mappingsChanged(entry);
 		}
 	}
 
@@ -129,7 +130,20 @@ public class EnigmaProject {
 			return false;
 		}
 
-		return this.jarIndex.getEntryIndex().hasEntry(obfEntry);
+		if (!this.jarIndex.getEntryIndex().hasEntry(obfEntry)) {
+			return false;
+		}
+
+		// members overriding a library member have to keep its name
+		if (this.jarIndex.getLibraryIndex() != null) {
+			for (Entry<?> rootEntry : this.jarIndex.getEntryResolver().resolveEntry(obfEntry, ResolutionStrategy.RESOLVE_ROOT)) {
+				if (!this.jarIndex.getEntryIndex().hasEntry(rootEntry)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
 	}
 
 	public boolean isRenamable(EntryReference<Entry<?>, Entry<?>> obfReference) {
@@ -30,12 +30,12 @@ import org.objectweb.asm.tree.analysis.SourceInterpreter;
 import org.objectweb.asm.tree.analysis.SourceValue;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class BuiltinPlugin implements EnigmaPlugin {
 
@@ -49,10 +49,9 @@ public final class BuiltinPlugin implements EnigmaPlugin {
 	}
 
 	private void registerEnumNamingService(EnigmaPluginContext ctx) {
-		final Map<Entry<?>, String> names = new HashMap<>();
-		final EnumFieldNameFindingVisitor visitor = new EnumFieldNameFindingVisitor(names);
+		final Map<Entry<?>, String> names = new ConcurrentHashMap<>();
 
-		ctx.registerService("enigma:enum_initializer_indexer", JarIndexerService.TYPE, ctx1 -> (classCache, jarIndex) -> classCache.visit(() -> visitor, ClassReader.SKIP_FRAMES));
+		ctx.registerService("enigma:enum_initializer_indexer", JarIndexerService.TYPE, ctx1 -> (classCache, jarIndex) -> classCache.visitParallel(() -> new EnumFieldNameFindingVisitor(names), ClassReader.SKIP_FRAMES));
 		ctx.registerService("enigma:enum_name_proposer", NameProposalService.TYPE, ctx1 -> (obfEntry, remapper) -> Optional.ofNullable(names.get(obfEntry)));
 	}
 
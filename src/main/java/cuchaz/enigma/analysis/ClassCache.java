@@ -2,58 +2,87 @@ package cuchaz.enigma.analysis;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import cuchaz.enigma.ClassProvider;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.ReferenceIndexingMode;
 import cuchaz.enigma.bytecode.translators.LocalVariableFixVisitor;
 import cuchaz.enigma.utils.Utils;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * Reads classes out of a jar, caching them in two tiers that share one memory budget: parsed
+ * {@link ClassNode}s, weighed by their estimated footprint, take three quarters of it, and the
+ * decompressed class file bytes they are parsed from take the rest. A node that falls out of the
+ * first tier can then be parsed again without inflating its jar entry a second time.
+ *
+ * <p>The budget defaults to the {@code enigma.classCacheMegabytes} system property, or 64 MiB when
+ * it is not set.
+ */
 public final class ClassCache implements AutoCloseable, ClassProvider {
-	private final FileSystem fileSystem;
+	public static final long DEFAULT_CACHE_BYTES = Utils.getSystemPropertyAsLong("enigma.classCacheMegabytes", 64) * 1024 * 1024;
+
+	private final MappedJarFile jar;
 	private final ImmutableSet<String> classNames;
 
-	private final Cache<String, ClassNode> nodeCache = CacheBuilder.newBuilder()
-			.maximumSize(128)
-			.expireAfterAccess(1, TimeUnit.MINUTES)
-			.build();
+	private final Cache<String, ClassNode> nodeCache;
+	private final Cache<String, byte[]> bytesCache;
 
-	private ClassCache(FileSystem fileSystem, ImmutableSet<String> classNames) {
-		this.fileSystem = fileSystem;
+	private ClassCache(MappedJarFile jar, ImmutableSet<String> classNames, long cacheBytes) {
+		this.jar = jar;
 		this.classNames = classNames;
+
+		long bytesBudget = cacheBytes / 4;
+		this.nodeCache = CacheBuilder.newBuilder()
+				.maximumWeight(cacheBytes - bytesBudget)
+				.weigher((String name, ClassNode node) -> estimateSize(node))
+				.recordStats()
+				.build();
+		this.bytesCache = CacheBuilder.newBuilder()
+				.maximumWeight(bytesBudget)
+				.weigher((String name, byte[] bytes) -> bytes.length)
+				.recordStats()
+				.build();
 	}
 
 	public static ClassCache of(Path jarPath) throws IOException {
-		FileSystem fileSystem = FileSystems.newFileSystem(jarPath, (ClassLoader) null);
-		ImmutableSet<String> classNames = collectClassNames(fileSystem);
+		return of(jarPath, DEFAULT_CACHE_BYTES);
+	}
+
+	public static ClassCache of(Path jarPath, long cacheBytes) throws IOException {
+		MappedJarFile jar = MappedJarFile.open(jarPath);
+		ImmutableSet<String> classNames = collectClassNames(jar);
 
-		return new ClassCache(fileSystem, classNames);
+		return new ClassCache(jar, classNames, cacheBytes);
 	}
 
-	private static ImmutableSet<String> collectClassNames(FileSystem fileSystem) throws IOException {
+	private static ImmutableSet<String> collectClassNames(MappedJarFile jar) {
 		ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
-		for (Path root : fileSystem.getRootDirectories()) {
-			Files.walk(root).map(Path::toString)
-					.forEach(path -> {
-						if (path.endsWith(".class")) {
-							String name = path.substring(1, path.length() - ".class".length());
-							classNames.add(name);
-						}
-					});
+		for (String path : jar.getEntryNames()) {
+			if (path.endsWith(".class")) {
+				classNames.add(path.substring(0, path.length() - ".class".length()));
+			}
 		}
 
 		return classNames.build();
@@ -85,43 +114,169 @@ public final class ClassCache implements AutoCloseable, ClassProvider {
 	}
 
 	private ClassReader getReader(String name) throws IOException {
-		Path path = fileSystem.getPath(name + ".class");
-		byte[] bytes = Files.readAllBytes(path);
-		return new ClassReader(bytes);
+		try {
+			return new ClassReader(bytesCache.get(name, () -> readBytes(name)));
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private byte[] readBytes(String name) throws IOException {
+		byte[] bytes = jar.read(name + ".class");
+		if (bytes == null) {
+			throw new IOException("Missing class " + name);
+		}
+		return bytes;
+	}
+
+	private static int estimateSize(ClassNode node) {
+		// rough per-object costs of the tree API, good enough to keep the cache within its budget
+		int size = 512;
+		size += node.fields.size() * 128;
+		for (MethodNode method : node.methods) {
+			size += 256;
+			size += method.instructions.size() * 48;
+			size += method.tryCatchBlocks.size() * 64;
+			if (method.localVariables != null) {
+				size += method.localVariables.size() * 80;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the hit, miss and eviction counts of the parsed class tier. Only lookups made through
+	 * {@link #getClassNode(String)} are counted, not those of the passes visiting every class.
+	 */
+	public CacheStats getNodeCacheStats() {
+		return nodeCache.stats();
+	}
+
+	/**
+	 * Returns the hit, miss and eviction counts of the class file bytes tier. Like
+	 * {@link #getNodeCacheStats()}, this leaves out the passes visiting every class.
+	 */
+	public CacheStats getBytesCacheStats() {
+		return bytesCache.stats();
 	}
 
 	public int getClassCount() {
 		return classNames.size();
 	}
 
+	public Set<String> getClassNames() {
+		return classNames;
+	}
+
+	/**
+	 * Maps every class to a SHA-256 digest of its class file, which changes whenever the class does.
+	 */
+	public Map<String, HashCode> getClassHashes() {
+		// every class file has to be read for this, so they are hashed in parallel
+		return classNames.parallelStream().collect(ImmutableMap.toImmutableMap(Function.identity(), this::hashClass));
+	}
+
+	private HashCode hashClass(String className) {
+		byte[] bytes = bytesCache.asMap().get(className);
+		try {
+			return Hashing.sha256().hashBytes(bytes != null ? bytes : readBytes(className));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public void visit(Supplier<ClassVisitor> visitorSupplier, int readFlags) {
 		for (String className : classNames) {
-			ClassVisitor visitor = visitorSupplier.get();
+			visitClass(className, visitorSupplier.get(), readFlags);
+		}
+	}
 
-			ClassNode cached = nodeCache.getIfPresent(className);
-			if (cached != null) {
-				cached.accept(visitor);
-				continue;
-			}
+	/**
+	 * Visits every class of the jar on the common fork-join pool.
+	 *
+	 * <p>The supplier is invoked once per class, on the worker thread that will then drive the
+	 * returned visitor. Visitors must therefore either be confined to the single class they are
+	 * given, or only write into state owned by the current thread (such as a thread-local shard
+	 * that is merged once this method returns).
+	 */
+	public void visitParallel(Supplier<ClassVisitor> visitorSupplier, int readFlags) {
+		visitParallel(classNames.asList(), visitorSupplier, readFlags);
+	}
 
-			try {
-				ClassReader reader = getReader(className);
-				reader.accept(visitor, readFlags);
-			} catch (IOException e) {
-				System.out.println("Failed to visit class " + className);
-				e.printStackTrace();
-			}
+	/**
+	 * Like {@link #visitParallel(Supplier, int)}, but only visits the given classes of this jar.
+	 */
+	public void visitParallel(List<String> classNames, Supplier<ClassVisitor> visitorSupplier, int readFlags) {
+		ForkJoinPool.commonPool().invoke(new VisitTask(classNames, visitorSupplier, readFlags));
+	}
+
+	private void visitClass(String className, ClassVisitor visitor, int readFlags) {
+		// bulk passes look the caches up through their map views, which do not record statistics,
+		// so that the statistics only describe the lookups made through getClassNode
+		ClassNode cached = nodeCache.asMap().get(className);
+		if (cached != null) {
+			cached.accept(visitor);
+			return;
+		}
+
+		try {
+			// a full pass over the jar would only flush the bytes tier, so it is read without it
+			byte[] bytes = bytesCache.asMap().get(className);
+			ClassReader reader = new ClassReader(bytes != null ? bytes : readBytes(className));
+			reader.accept(visitor, readFlags);
+		} catch (IOException e) {
+			System.out.println("Failed to visit class " + className);
+			e.printStackTrace();
 		}
 	}
 
 	@Override
 	public void close() throws IOException {
-		this.fileSystem.close();
+		this.jar.close();
 	}
 
 	public JarIndex index(ProgressListener progress) {
+		return index(ReferenceIndexingMode.FULL, progress);
+	}
+
+	public JarIndex index(ReferenceIndexingMode referenceMode, ProgressListener progress) {
+		return index(referenceMode, null, progress);
+	}
+
+	public JarIndex index(ReferenceIndexingMode referenceMode, @Nullable ClassProvider libraries, ProgressListener progress) {
 		JarIndex index = JarIndex.empty();
-		index.indexJar(this, progress);
+		index.indexJar(this, referenceMode, libraries, progress);
 		return index;
 	}
+
+	private final class VisitTask extends RecursiveAction {
+		private static final int THRESHOLD = 64;
+
+		private final List<String> classNames;
+		private final Supplier<ClassVisitor> visitorSupplier;
+		private final int readFlags;
+
+		VisitTask(List<String> classNames, Supplier<ClassVisitor> visitorSupplier, int readFlags) {
+			this.classNames = classNames;
+			this.visitorSupplier = visitorSupplier;
+			this.readFlags = readFlags;
+		}
+
+		@Override
+		protected void compute() {
+			int size = classNames.size();
+			if (size <= THRESHOLD) {
+				for (String className : classNames) {
+					visitClass(className, visitorSupplier.get(), readFlags);
+				}
+				return;
+			}
+
+			int middle = size / 2;
+			invokeAll(
+					new VisitTask(classNames.subList(0, middle), visitorSupplier, readFlags),
+					new VisitTask(classNames.subList(middle, size), visitorSupplier, readFlags)
+			);
+		}
+	}
 }
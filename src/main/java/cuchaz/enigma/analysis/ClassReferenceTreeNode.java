@@ -13,7 +13,8 @@ package cuchaz.enigma.analysis;
 
 import com.google.common.collect.Sets;
 import cuchaz.enigma.analysis.index.JarIndex;
-import cuchaz.enigma.analysis.index.ReferenceIndex;
+import cuchaz.enigma.analysis.index.ReferencePage;
+import cuchaz.enigma.analysis.index.ReferenceQuery;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -21,6 +22,8 @@ import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 public class ClassReferenceTreeNode extends DefaultMutableTreeNode
@@ -30,6 +33,12 @@ public class ClassReferenceTreeNode extends DefaultMutableTreeNode
 	private ClassEntry entry;
 	private EntryReference<ClassEntry, MethodDefEntry> reference;
 
+	private ReferenceQuery<ClassEntry, MethodDefEntry> query;
+	private int nextCursor = -1;
+	// counted when first needed, since counting a filtered query walks all of its references
+	private int total = -1;
+	private boolean recurse;
+
 	public ClassReferenceTreeNode(Translator deobfuscatingTranslator, ClassEntry entry) {
 		this.deobfuscatingTranslator = deobfuscatingTranslator;
 		this.entry = entry;
@@ -61,33 +70,54 @@ public class ClassReferenceTreeNode extends DefaultMutableTreeNode
 	}
 
 	public void load(JarIndex index, boolean recurse) {
-		ReferenceIndex referenceIndex = index.getReferenceIndex();
+		this.query = index.getReferenceIndex().queryReferencesToClass(this.entry);
+		this.nextCursor = 0;
+		this.total = -1;
+		this.recurse = recurse;
+		loadMoreReferences(index);
+	}
 
-		// get all the child nodes
-		for (EntryReference<ClassEntry, MethodDefEntry> reference : referenceIndex.getReferencesToClass(this.entry)) {
-			add(new ClassReferenceTreeNode(this.deobfuscatingTranslator, reference));
+	@Override
+	public void loadMoreReferences(JarIndex index) {
+		if (this.nextCursor < 0) {
+			return;
 		}
 
-		if (recurse && this.children != null) {
-			for (Object child : this.children) {
-				if (child instanceof ClassReferenceTreeNode) {
-					ClassReferenceTreeNode node = (ClassReferenceTreeNode) child;
-
-					// don't recurse into ancestor
-					Set<Entry<?>> ancestors = Sets.newHashSet();
-					TreeNode n = node;
-					while (n.getParent() != null) {
-						n = n.getParent();
-						if (n instanceof ClassReferenceTreeNode) {
-							ancestors.add(((ClassReferenceTreeNode) n).getEntry());
-						}
-					}
-					if (ancestors.contains(node.getEntry())) {
-						continue;
-					}
+		// get the next page of child nodes
+		ReferencePage<ClassEntry, MethodDefEntry> page = this.query.page(this.nextCursor, PAGE_SIZE);
+		MoreReferencesTreeNode.removeFrom(this);
+
+		List<ClassReferenceTreeNode> nodes = new ArrayList<>(page.getReferences().size());
+		for (EntryReference<ClassEntry, MethodDefEntry> reference : page.getReferences()) {
+			ClassReferenceTreeNode node = new ClassReferenceTreeNode(this.deobfuscatingTranslator, reference);
+			add(node);
+			nodes.add(node);
+		}
 
-					node.load(index, true);
+		this.nextCursor = page.getNextCursor();
+		if (page.hasNext()) {
+			if (this.total < 0) {
+				this.total = this.query.count();
+			}
+			add(new MoreReferencesTreeNode(this.total - this.nextCursor));
+		}
+
+		if (this.recurse) {
+			for (ClassReferenceTreeNode node : nodes) {
+				// don't recurse into ancestor
+				Set<Entry<?>> ancestors = Sets.newHashSet();
+				TreeNode n = node;
+				while (n.getParent() != null) {
+					n = n.getParent();
+					if (n instanceof ClassReferenceTreeNode) {
+						ancestors.add(((ClassReferenceTreeNode) n).getEntry());
+					}
+				}
+				if (ancestors.contains(node.getEntry())) {
+					continue;
 				}
+
+				node.load(index, true);
 			}
 		}
 	}
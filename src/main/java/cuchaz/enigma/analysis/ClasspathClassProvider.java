@@ -0,0 +1,80 @@
+package cuchaz.enigma.analysis;
+
+import cuchaz.enigma.ClassProvider;
+import org.objectweb.asm.tree.ClassNode;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks classes up across a list of library jars. A jar is only opened once a class cannot be
+ * found in the jars opened before it, and the class names of every opened jar go into one shared
+ * table, so later lookups go straight to the jar that holds the class.
+ *
+ * <p>Like on a classpath, a class found in several jars is taken from the first of them.
+ */
+public final class ClasspathClassProvider implements AutoCloseable, ClassProvider {
+	private final List<Path> jarPaths;
+	private final long cacheBytes;
+
+	private final List<ClassCache> openedJars = new ArrayList<>();
+	private final Map<String, ClassCache> classOwners = new HashMap<>();
+
+	public ClasspathClassProvider(List<Path> jarPaths) {
+		this(jarPaths, ClassCache.DEFAULT_CACHE_BYTES);
+	}
+
+	/**
+	 * @param cacheBytes the memory budget shared by the class caches of all jars
+	 */
+	public ClasspathClassProvider(List<Path> jarPaths, long cacheBytes) {
+		this.jarPaths = new ArrayList<>(jarPaths);
+		this.cacheBytes = cacheBytes;
+	}
+
+	@Nullable
+	@Override
+	public ClassNode getClassNode(String name) {
+		ClassCache owner = findOwner(name);
+		return owner != null ? owner.getClassNode(name) : null;
+	}
+
+	@Nullable
+	private synchronized ClassCache findOwner(String name) {
+		ClassCache owner = classOwners.get(name);
+		while (owner == null && openedJars.size() < jarPaths.size()) {
+			ClassCache jar = open(jarPaths.get(openedJars.size()));
+			openedJars.add(jar);
+
+			for (String className : jar.getClassNames()) {
+				classOwners.putIfAbsent(className, jar);
+			}
+
+			owner = classOwners.get(name);
+		}
+
+		return owner;
+	}
+
+	private ClassCache open(Path jarPath) {
+		try {
+			return ClassCache.of(jarPath, cacheBytes / jarPaths.size());
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to open library " + jarPath, e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		for (ClassCache jar : openedJars) {
+			jar.close();
+		}
+		openedJars.clear();
+		classOwners.clear();
+	}
+}
@@ -13,12 +13,16 @@ package cuchaz.enigma.analysis;
 
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.analysis.index.ReferenceIndex;
+import cuchaz.enigma.analysis.index.ReferencePage;
+import cuchaz.enigma.analysis.index.ReferenceQuery;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import javax.swing.tree.DefaultMutableTreeNode;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FieldReferenceTreeNode extends DefaultMutableTreeNode implements ReferenceTreeNode<FieldEntry, MethodDefEntry> {
 
@@ -26,6 +30,12 @@ public class FieldReferenceTreeNode extends DefaultMutableTreeNode implements Re
 	private FieldEntry entry;
 	private EntryReference<FieldEntry, MethodDefEntry> reference;
 
+	private ReferenceQuery<?, MethodDefEntry> query;
+	private int nextCursor = -1;
+	// counted when first needed, since counting a filtered query walks all of its references
+	private int total = -1;
+	private boolean recurse;
+
 	public FieldReferenceTreeNode(Translator translator, FieldEntry entry) {
 		this.translator = translator;
 		this.entry = entry;
@@ -59,19 +69,50 @@ public class FieldReferenceTreeNode extends DefaultMutableTreeNode implements Re
 	public void load(JarIndex index, boolean recurse) {
 		ReferenceIndex referenceIndex = index.getReferenceIndex();
 
-		// get all the child nodes
 		if (this.reference == null) {
-			for (EntryReference<FieldEntry, MethodDefEntry> reference : referenceIndex.getReferencesToField(this.entry)) {
-				add(new FieldReferenceTreeNode(translator, reference));
-			}
+			this.query = referenceIndex.queryReferencesToField(this.entry);
 		} else {
-			for (EntryReference<MethodEntry, MethodDefEntry> reference : referenceIndex.getReferencesToMethod(this.reference.context)) {
-				add(new MethodReferenceTreeNode(translator, reference));
+			this.query = referenceIndex.queryReferencesToMethod(this.reference.context);
+		}
+		this.nextCursor = 0;
+		this.total = -1;
+		this.recurse = recurse;
+		loadMoreReferences(index);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void loadMoreReferences(JarIndex index) {
+		if (this.nextCursor < 0) {
+			return;
+		}
+
+		// get the next page of child nodes
+		ReferencePage<?, MethodDefEntry> page = this.query.page(this.nextCursor, PAGE_SIZE);
+		MoreReferencesTreeNode.removeFrom(this);
+
+		List<DefaultMutableTreeNode> nodes = new ArrayList<>(page.getReferences().size());
+		for (EntryReference<?, MethodDefEntry> reference : page.getReferences()) {
+			DefaultMutableTreeNode node;
+			if (this.reference == null) {
+				node = new FieldReferenceTreeNode(translator, (EntryReference<FieldEntry, MethodDefEntry>) reference);
+			} else {
+				node = new MethodReferenceTreeNode(translator, (EntryReference<MethodEntry, MethodDefEntry>) reference);
+			}
+			add(node);
+			nodes.add(node);
+		}
+
+		this.nextCursor = page.getNextCursor();
+		if (page.hasNext()) {
+			if (this.total < 0) {
+				this.total = this.query.count();
 			}
+			add(new MoreReferencesTreeNode(this.total - this.nextCursor));
 		}
 
-		if (recurse && children != null) {
-			for (Object node : children) {
+		if (this.recurse) {
+			for (DefaultMutableTreeNode node : nodes) {
 				if (node instanceof MethodReferenceTreeNode) {
 					((MethodReferenceTreeNode) node).load(index, true, false);
 				} else if (node instanceof FieldReferenceTreeNode) {
@@ -0,0 +1,277 @@
+package cuchaz.enigma.analysis;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of a jar that is memory-mapped once and indexed through its central directory.
+ * Reads only touch the mapping through absolute accessors or private duplicates, so a single
+ * instance can be shared between threads.
+ */
+final class MappedJarFile implements AutoCloseable {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+	private static final int FLAG_ENCRYPTED = 1;
+	private static final int FLAG_UTF8 = 1 << 11;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final ImmutableMap<String, Entry> entries;
+
+	private MappedJarFile(Path path, FileChannel channel, MappedByteBuffer buffer, ImmutableMap<String, Entry> entries) {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.entries = entries;
+	}
+
+	public static MappedJarFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Jar is too large to be mapped: " + path);
+			}
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			return new MappedJarFile(path, channel, buffer, readCentralDirectory(path, buffer));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ImmutableMap<String, Entry> readCentralDirectory(Path path, ByteBuffer buffer) throws IOException {
+		int endOffset = findEndRecord(path, buffer);
+
+		long entryCount = buffer.getShort(endOffset + 10) & 0xFFFF;
+		long directorySize = buffer.getInt(endOffset + 12) & ZIP64_MAGIC;
+		long directoryOffset = buffer.getInt(endOffset + 16) & ZIP64_MAGIC;
+
+		int locatorOffset = endOffset - ZIP64_LOCATOR_SIZE;
+		if (locatorOffset >= 0 && buffer.getInt(locatorOffset) == ZIP64_LOCATOR_SIGNATURE) {
+			long zip64EndOffset = buffer.getLong(locatorOffset + 8);
+			if (zip64EndOffset < 0 || zip64EndOffset > buffer.limit() - 56 || buffer.getInt((int) zip64EndOffset) != ZIP64_END_SIGNATURE) {
+				throw new IOException("Invalid zip64 end of central directory in " + path);
+			}
+
+			entryCount = buffer.getLong((int) zip64EndOffset + 32);
+			directorySize = buffer.getLong((int) zip64EndOffset + 40);
+			directoryOffset = buffer.getLong((int) zip64EndOffset + 48);
+		}
+
+		if (directoryOffset < 0 || directorySize < 0 || directoryOffset + directorySize > buffer.limit()) {
+			throw new IOException("Central directory lies outside of " + path);
+		}
+
+		Map<String, Entry> entries = new LinkedHashMap<>();
+
+		int offset = (int) directoryOffset;
+		for (long i = 0; i < entryCount; i++) {
+			if (offset + CENTRAL_HEADER_SIZE > buffer.limit() || buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+				throw new IOException("Corrupt central directory entry " + i + " in " + path);
+			}
+
+			int flags = buffer.getShort(offset + 8) & 0xFFFF;
+			int method = buffer.getShort(offset + 10) & 0xFFFF;
+			long compressedSize = buffer.getInt(offset + 20) & ZIP64_MAGIC;
+			long size = buffer.getInt(offset + 24) & ZIP64_MAGIC;
+			int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+			long headerOffset = buffer.getInt(offset + 42) & ZIP64_MAGIC;
+
+			String name = readString(buffer, offset + CENTRAL_HEADER_SIZE, nameLength, (flags & FLAG_UTF8) != 0);
+
+			// sizes and offsets that overflow 32 bits live in the zip64 extra field, in this fixed order
+			int extraOffset = offset + CENTRAL_HEADER_SIZE + nameLength;
+			int extraEnd = extraOffset + extraLength;
+			while (extraOffset + 4 <= extraEnd) {
+				int id = buffer.getShort(extraOffset) & 0xFFFF;
+				int length = buffer.getShort(extraOffset + 2) & 0xFFFF;
+				if (id == ZIP64_EXTRA_ID) {
+					int valueOffset = extraOffset + 4;
+					if (size == ZIP64_MAGIC) {
+						size = buffer.getLong(valueOffset);
+						valueOffset += 8;
+					}
+					if (compressedSize == ZIP64_MAGIC) {
+						compressedSize = buffer.getLong(valueOffset);
+						valueOffset += 8;
+					}
+					if (headerOffset == ZIP64_MAGIC) {
+						headerOffset = buffer.getLong(valueOffset);
+					}
+					break;
+				}
+				extraOffset += 4 + length;
+			}
+
+			if (!name.endsWith("/")) {
+				if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE || headerOffset > buffer.limit()) {
+					throw new IOException("Entry " + name + " is too large in " + path);
+				}
+				entries.putIfAbsent(name, new Entry(flags, method, (int) compressedSize, (int) size, (int) headerOffset));
+			}
+
+			offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+
+		return ImmutableMap.copyOf(entries);
+	}
+
+	private static int findEndRecord(Path path, ByteBuffer buffer) throws IOException {
+		int lowest = Math.max(0, buffer.limit() - END_SIZE - MAX_COMMENT_SIZE);
+		for (int offset = buffer.limit() - END_SIZE; offset >= lowest; offset--) {
+			if (buffer.getInt(offset) == END_SIGNATURE) {
+				return offset;
+			}
+		}
+
+		throw new IOException("Could not find end of central directory in " + path);
+	}
+
+	private static String readString(ByteBuffer buffer, int offset, int length, boolean utf8) {
+		byte[] bytes = new byte[length];
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(offset);
+		slice.get(bytes);
+		return new String(bytes, utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+	}
+
+	public Set<String> getEntryNames() {
+		return entries.keySet();
+	}
+
+	public boolean contains(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * Reads the uncompressed contents of the given entry, copying stored entries straight out of
+	 * the mapping and inflating deflated ones.
+	 */
+	@Nullable
+	public byte[] read(String name) throws IOException {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+
+		if ((entry.flags & FLAG_ENCRYPTED) != 0) {
+			throw new IOException("Encrypted entry " + name + " in " + path + " is not supported");
+		}
+
+		int headerOffset = entry.headerOffset;
+		if (headerOffset + LOCAL_HEADER_SIZE > buffer.limit() || buffer.getInt(headerOffset) != LOCAL_HEADER_SIGNATURE) {
+			throw new IOException("Corrupt local header for " + name + " in " + path);
+		}
+
+		// the local extra field may differ from the central one, so the data offset has to come from here
+		int nameLength = buffer.getShort(headerOffset + 26) & 0xFFFF;
+		int extraLength = buffer.getShort(headerOffset + 28) & 0xFFFF;
+		int dataOffset = headerOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+		if (dataOffset + entry.compressedSize > buffer.limit()) {
+			throw new IOException("Data for " + name + " lies outside of " + path);
+		}
+
+		ByteBuffer data = buffer.duplicate();
+		data.position(dataOffset);
+
+		switch (entry.method) {
+			case METHOD_STORED: {
+				byte[] bytes = new byte[entry.size];
+				data.get(bytes);
+				return bytes;
+			}
+			case METHOD_DEFLATED: {
+				byte[] compressed = new byte[entry.compressedSize];
+				data.get(compressed);
+				return inflate(name, compressed, entry.size);
+			}
+			default:
+				throw new IOException("Unsupported compression method " + entry.method + " for " + name + " in " + path);
+		}
+	}
+
+	private byte[] inflate(String name, byte[] compressed, int size) throws IOException {
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(compressed);
+
+			byte[] bytes = new byte[size];
+			int read = 0;
+			while (read < size) {
+				int count = inflater.inflate(bytes, read, size - read);
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				read += count;
+			}
+
+			if (read != size) {
+				throw new IOException("Truncated entry " + name + " in " + path);
+			}
+
+			return bytes;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt entry " + name + " in " + path, e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the mapping itself is released once the buffer is collected
+		channel.close();
+	}
+
+	private static final class Entry {
+		final int flags;
+		final int method;
+		final int compressedSize;
+		final int size;
+		final int headerOffset;
+
+		Entry(int flags, int method, int compressedSize, int size, int headerOffset) {
+			this.flags = flags;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.headerOffset = headerOffset;
+		}
+	}
+}
@@ -14,6 +14,8 @@ package cuchaz.enigma.analysis;
 import com.google.common.collect.Sets;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.analysis.index.ReferenceIndex;
+import cuchaz.enigma.analysis.index.ReferencePage;
+import cuchaz.enigma.analysis.index.ReferenceQuery;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -24,6 +26,7 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public class MethodReferenceTreeNode extends DefaultMutableTreeNode implements ReferenceTreeNode<MethodEntry, MethodDefEntry> {
@@ -32,6 +35,12 @@ public class MethodReferenceTreeNode extends DefaultMutableTreeNode implements R
 	private MethodEntry entry;
 	private EntryReference<MethodEntry, MethodDefEntry> reference;
 
+	private ReferenceQuery<MethodEntry, MethodDefEntry> query;
+	private int nextCursor = -1;
+	// counted when first needed, since counting a filtered query walks all of its references
+	private int total = -1;
+	private boolean recurse;
+
 	public MethodReferenceTreeNode(Translator translator, MethodEntry entry) {
 		this.translator = translator;
 		this.entry = entry;
@@ -63,51 +72,72 @@ public class MethodReferenceTreeNode extends DefaultMutableTreeNode implements R
 	}
 
 	public void load(JarIndex index, boolean recurse, boolean recurseMethod) {
-		// get all the child nodes
-		Collection<EntryReference<MethodEntry, MethodDefEntry>> references = getReferences(index, recurseMethod);
+		this.query = getReferences(index, recurseMethod);
+		this.nextCursor = 0;
+		this.total = -1;
+		this.recurse = recurse;
+		loadMoreReferences(index);
+	}
 
-		for (EntryReference<MethodEntry, MethodDefEntry> reference : references) {
-			add(new MethodReferenceTreeNode(translator, reference));
+	@Override
+	public void loadMoreReferences(JarIndex index) {
+		if (this.nextCursor < 0) {
+			return;
 		}
 
-		if (recurse && this.children != null) {
-			for (Object child : this.children) {
-				if (child instanceof MethodReferenceTreeNode) {
-					MethodReferenceTreeNode node = (MethodReferenceTreeNode) child;
-
-					// don't recurse into ancestor
-					Set<Entry<?>> ancestors = Sets.newHashSet();
-					TreeNode n = node;
-					while (n.getParent() != null) {
-						n = n.getParent();
-						if (n instanceof MethodReferenceTreeNode) {
-							ancestors.add(((MethodReferenceTreeNode) n).getEntry());
-						}
-					}
-					if (ancestors.contains(node.getEntry())) {
-						continue;
-					}
+		// get the next page of child nodes
+		ReferencePage<MethodEntry, MethodDefEntry> page = this.query.page(this.nextCursor, PAGE_SIZE);
+		MoreReferencesTreeNode.removeFrom(this);
+
+		List<MethodReferenceTreeNode> nodes = new ArrayList<>(page.getReferences().size());
+		for (EntryReference<MethodEntry, MethodDefEntry> reference : page.getReferences()) {
+			MethodReferenceTreeNode node = new MethodReferenceTreeNode(translator, reference);
+			add(node);
+			nodes.add(node);
+		}
 
-					node.load(index, true, false);
+		this.nextCursor = page.getNextCursor();
+		if (page.hasNext()) {
+			if (this.total < 0) {
+				this.total = this.query.count();
+			}
+			add(new MoreReferencesTreeNode(this.total - this.nextCursor));
+		}
+
+		if (this.recurse) {
+			for (MethodReferenceTreeNode node : nodes) {
+				// don't recurse into ancestor
+				Set<Entry<?>> ancestors = Sets.newHashSet();
+				TreeNode n = node;
+				while (n.getParent() != null) {
+					n = n.getParent();
+					if (n instanceof MethodReferenceTreeNode) {
+						ancestors.add(((MethodReferenceTreeNode) n).getEntry());
+					}
+				}
+				if (ancestors.contains(node.getEntry())) {
+					continue;
 				}
+
+				node.load(index, true, false);
 			}
 		}
 	}
 
-	private Collection<EntryReference<MethodEntry, MethodDefEntry>> getReferences(JarIndex index, boolean recurseMethod) {
+	private ReferenceQuery<MethodEntry, MethodDefEntry> getReferences(JarIndex index, boolean recurseMethod) {
 		ReferenceIndex referenceIndex = index.getReferenceIndex();
 
 		if (recurseMethod) {
-			Collection<EntryReference<MethodEntry, MethodDefEntry>> references = new ArrayList<>();
+			List<Collection<EntryReference<MethodEntry, MethodDefEntry>>> references = new ArrayList<>();
 
 			EntryResolver entryResolver = index.getEntryResolver();
 			for (MethodEntry methodEntry : entryResolver.resolveEquivalentMethods(entry)) {
-				references.addAll(referenceIndex.getReferencesToMethod(methodEntry));
+				references.add(referenceIndex.getReferencesToMethod(methodEntry));
 			}
 
-			return references;
+			return ReferenceQuery.concat(references);
 		} else {
-			return referenceIndex.getReferencesToMethod(entry);
+			return referenceIndex.queryReferencesToMethod(entry);
 		}
 	}
 }
@@ -0,0 +1,32 @@
+package cuchaz.enigma.analysis;
+
+import cuchaz.enigma.utils.I18n;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+/**
+ * Stands in for the references of a {@link ReferenceTreeNode} that have not been loaded yet. It is
+ * always the last child of its parent.
+ */
+public class MoreReferencesTreeNode extends DefaultMutableTreeNode {
+	private final int remaining;
+
+	public MoreReferencesTreeNode(int remaining) {
+		this.remaining = remaining;
+	}
+
+	public int getRemaining() {
+		return remaining;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(I18n.translate("info_panel.tree.more_references"), remaining);
+	}
+
+	static void removeFrom(DefaultMutableTreeNode node) {
+		if (node.getChildCount() > 0 && node.getLastChild() instanceof MoreReferencesTreeNode) {
+			node.remove(node.getChildCount() - 1);
+		}
+	}
+}
@@ -11,10 +11,22 @@
 
 package cuchaz.enigma.analysis;
 
+import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
 public interface ReferenceTreeNode<E extends Entry<?>, C extends Entry<?>> {
+	/**
+	 * How many references are loaded as children at once.
+	 */
+	int PAGE_SIZE = 200;
+
 	E getEntry();
 
 	EntryReference<E, C> getReference();
+
+	/**
+	 * Loads the next page of references, replacing the {@link MoreReferencesTreeNode} that stood in
+	 * for them. Does nothing if they have all been loaded already.
+	 */
+	void loadMoreReferences(JarIndex index);
 }
@@ -9,7 +9,9 @@ import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class BridgeMethodIndex implements JarIndexer {
 	private final EntryIndex entryIndex;
@@ -18,6 +20,9 @@ public class BridgeMethodIndex implements JarIndexer {
 
 	private final Map<MethodEntry, MethodEntry> bridgeToSpecialized = Maps.newHashMap();
 	private final Map<MethodEntry, MethodEntry> specializedToBridge = Maps.newHashMap();
+	// specialized methods under the name of their bridge, only added to specializedToBridge once the
+	// references have been processed
+	private final Map<MethodEntry, MethodEntry> renamedSpecializedToBridge = Maps.newHashMap();
 
 	public BridgeMethodIndex(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, ReferenceIndex referenceIndex) {
 		this.entryIndex = entryIndex;
@@ -26,45 +31,93 @@ public class BridgeMethodIndex implements JarIndexer {
 	}
 
 	public void findBridgeMethods() {
-		// look for access and bridged methods
-		for (MethodEntry methodEntry : entryIndex.getMethods()) {
-			MethodDefEntry methodDefEntry = (MethodDefEntry) methodEntry;
+		findBridgeMethodsIn(entryIndex.getMethods());
+	}
+
+	/**
+	 * Only looks for bridges declared by the given classes.
+	 */
+	void findBridgeMethods(Set<ClassEntry> classEntries) {
+		findBridgeMethodsIn(entryIndex.getMethods().stream()
+				.filter(methodEntry -> classEntries.contains(methodEntry.getParent()))
+				.collect(Collectors.toList()));
+	}
 
-			AccessFlags access = methodDefEntry.getAccess();
-			if (access == null || !access.isSynthetic()) {
-				continue;
+	private void findBridgeMethodsIn(Collection<MethodEntry> methodEntries) {
+		// look for access and bridged methods
+		List<MethodDefEntry> syntheticMethods = new ArrayList<>();
+		for (MethodEntry methodEntry : methodEntries) {
+			AccessFlags access = ((MethodDefEntry) methodEntry).getAccess();
+			if (access != null && access.isSynthetic()) {
+				syntheticMethods.add((MethodDefEntry) methodEntry);
 			}
+		}
+
+		// the candidates are checked in parallel, but merged in order so that the last bridge found
+		// for a specialized method still wins
+		List<Map.Entry<MethodDefEntry, MethodEntry>> bridges = syntheticMethods.parallelStream()
+				.map(this::findBridge)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
 
-			indexSyntheticMethod(methodDefEntry, access);
+		for (Map.Entry<MethodDefEntry, MethodEntry> bridge : bridges) {
+			bridgeToSpecialized.put(bridge.getKey(), bridge.getValue());
+			specializedToBridge.put(bridge.getValue(), bridge.getKey());
+		}
+
+		for (Map.Entry<MethodDefEntry, MethodEntry> bridge : bridges) {
+			MethodEntry specializedEntry = bridge.getValue();
+			MethodEntry bridgeEntry = specializedToBridge.get(specializedEntry);
+			if (!bridgeEntry.getName().equals(specializedEntry.getName())) {
+				renamedSpecializedToBridge.put(specializedEntry.withName(bridgeEntry.getName()), bridgeEntry);
+			}
 		}
 	}
 
-	@Override
-	public void processIndex(JarIndex index) {
-		Map<MethodEntry, MethodEntry> copiedAccessToBridge = new HashMap<>(specializedToBridge);
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		out.writeMap(bridgeToSpecialized, out::writeEntry, out::writeEntry);
+		out.writeMap(specializedToBridge, out::writeEntry, out::writeEntry);
+	}
 
-		for (Map.Entry<MethodEntry, MethodEntry> entry : copiedAccessToBridge.entrySet()) {
-			MethodEntry specializedEntry = entry.getKey();
-			MethodEntry bridgeEntry = entry.getValue();
-			if (bridgeEntry.getName().equals(specializedEntry.getName())) {
-				continue;
-			}
+	void readSnapshot(SnapshotInput in) {
+		in.readMap(in::readEntry, in::readEntry, bridgeToSpecialized::put);
+		in.readMap(in::readEntry, in::readEntry, specializedToBridge::put);
+	}
 
-			MethodEntry renamedSpecializedEntry = specializedEntry.withName(bridgeEntry.getName());
-			specializedToBridge.put(renamedSpecializedEntry, specializedToBridge.get(specializedEntry));
-		}
+	/**
+	 * Drops the bridges declared by the given classes.
+	 */
+	void removeClasses(Set<ClassEntry> classEntries) {
+		bridgeToSpecialized.keySet().removeIf(bridge -> classEntries.contains(bridge.getParent()));
+		specializedToBridge.values().removeIf(bridge -> classEntries.contains(bridge.getParent()));
 	}
 
-	private void indexSyntheticMethod(MethodDefEntry syntheticMethod, AccessFlags access) {
+	@Override
+	public void mergeShard(JarIndexer shard) {
+		BridgeMethodIndex bridgeShard = (BridgeMethodIndex) shard;
+		bridgeToSpecialized.putAll(bridgeShard.bridgeToSpecialized);
+		specializedToBridge.putAll(bridgeShard.specializedToBridge);
+		renamedSpecializedToBridge.putAll(bridgeShard.renamedSpecializedToBridge);
+	}
+
+	@Override
+	public void processIndex(JarIndex index) {
+		specializedToBridge.putAll(renamedSpecializedToBridge);
+		renamedSpecializedToBridge.clear();
+	}
+
+	@Nullable
+	private Map.Entry<MethodDefEntry, MethodEntry> findBridge(MethodDefEntry syntheticMethod) {
 		MethodEntry specializedMethod = findSpecializedMethod(syntheticMethod);
 		if (specializedMethod == null) {
-			return;
+			return null;
 		}
 
-		if (access.isBridge() || isPotentialBridge(syntheticMethod, specializedMethod)) {
-			bridgeToSpecialized.put(syntheticMethod, specializedMethod);
-			specializedToBridge.put(specializedMethod, syntheticMethod);
+		if (syntheticMethod.getAccess().isBridge() || isPotentialBridge(syntheticMethod, specializedMethod)) {
+			return Maps.immutableEntry(syntheticMethod, specializedMethod);
 		}
+
+		return null;
 	}
 
 	private MethodEntry findSpecializedMethod(MethodEntry method) {
@@ -4,9 +4,11 @@ import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.*;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class EntryIndex implements JarIndexer {
 	private Map<ClassEntry, AccessFlags> classes = new HashMap<>();
@@ -30,6 +32,42 @@ public class EntryIndex implements JarIndexer {
 		fields.put(fieldEntry, fieldEntry.getAccess());
 	}
 
+	@Override
+	public EntryIndex createShard() {
+		return new EntryIndex();
+	}
+
+	@Override
+	public void mergeShard(JarIndexer shard) {
+		EntryIndex entryShard = (EntryIndex) shard;
+		classes.putAll(entryShard.classes);
+		fields.putAll(entryShard.fields);
+		methods.putAll(entryShard.methods);
+		definitions.putAll(entryShard.definitions);
+	}
+
+	/**
+	 * Drops the given classes along with every field and method they declare.
+	 */
+	void removeClasses(Set<ClassEntry> classEntries) {
+		classes.keySet().removeAll(classEntries);
+		definitions.keySet().removeAll(classEntries);
+		fields.keySet().removeIf(field -> classEntries.contains(field.getParent()));
+		methods.keySet().removeIf(method -> classEntries.contains(method.getParent()));
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		out.writeCollection(definitions.values(), out::writeEntry);
+		out.writeCollection(fields.keySet(), out::writeEntry);
+		out.writeCollection(methods.keySet(), out::writeEntry);
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		in.<ClassDefEntry>readCollection(in::readEntry, this::indexClass);
+		in.<FieldDefEntry>readCollection(in::readEntry, this::indexField);
+		in.<MethodDefEntry>readCollection(in::readEntry, this::indexMethod);
+	}
+
 	public boolean hasClass(ClassEntry entry) {
 		return classes.containsKey(entry);
 	}
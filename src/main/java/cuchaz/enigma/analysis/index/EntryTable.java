@@ -0,0 +1,47 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numbers entries densely from zero, in the order they are first added. Equal entries share an id,
+ * and the first instance added is the one handed back for it.
+ */
+final class EntryTable {
+	private final Map<Entry<?>, Integer> ids = new HashMap<>();
+	private final ArrayList<Entry<?>> entries = new ArrayList<>();
+
+	int add(Entry<?> entry) {
+		Integer id = ids.get(entry);
+		if (id == null) {
+			id = entries.size();
+			ids.put(entry, id);
+			entries.add(entry);
+		}
+		return id;
+	}
+
+	/**
+	 * @return the id of the entry, or -1 if it was never added
+	 */
+	int getId(Entry<?> entry) {
+		Integer id = ids.get(entry);
+		return id != null ? id : -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	<E extends Entry<?>> E get(int id) {
+		return (E) entries.get(id);
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	void trim() {
+		entries.trimToSize();
+	}
+}
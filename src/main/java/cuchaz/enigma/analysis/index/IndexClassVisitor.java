@@ -6,14 +6,28 @@ import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.Nullable;
 
 public class IndexClassVisitor extends ClassVisitor {
 	private final JarIndexer indexer;
+	@Nullable
+	private final MethodAnalysis methodBodies;
 	private ClassDefEntry classEntry;
 
 	public IndexClassVisitor(JarIndex indexer, int api) {
+		this(indexer, null, api);
+	}
+
+	/**
+	 * Also hands the body of every concrete method to {@code methodBodies}, which keeps what the
+	 * reference analysis will need of it.
+	 */
+	IndexClassVisitor(JarIndexer indexer, @Nullable MethodAnalysis methodBodies, int api) {
 		super(api);
 		this.indexer = indexer;
+		this.methodBodies = methodBodies;
 	}
 
 	@Override
@@ -33,7 +47,12 @@ public class IndexClassVisitor extends ClassVisitor {
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-		indexer.indexMethod(MethodDefEntry.parse(classEntry, access, name, desc, signature));
+		MethodDefEntry methodEntry = MethodDefEntry.parse(classEntry, access, name, desc, signature);
+		indexer.indexMethod(methodEntry);
+
+		if (methodBodies != null && (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0) {
+			return methodBodies.visitMethod(api, methodEntry);
+		}
 
 		return super.visitMethod(access, name, desc, signature, exceptions);
 	}
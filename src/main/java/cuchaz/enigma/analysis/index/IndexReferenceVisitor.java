@@ -14,58 +14,118 @@ import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.InvokeDynamicInsnNode;
 import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.analysis.*;
 
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class IndexReferenceVisitor extends ClassVisitor {
 	private final JarIndexer indexer;
 	private final EntryIndex entryIndex;
 	private final InheritanceIndex inheritanceIndex;
+	private final EntryPool entryPool;
+	private final Predicate<MethodEntry> methods;
 	private ClassEntry classEntry;
 	private String className;
 
-	public IndexReferenceVisitor(JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, int api) {
+	/**
+	 * @param entryPool the pool to intern the referenced entries in, normally {@link JarIndex#getEntryPool()}
+	 */
+	public IndexReferenceVisitor(JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, EntryPool entryPool, int api) {
+		this(indexer, entryIndex, inheritanceIndex, entryPool, method -> true, api);
+	}
+
+	/**
+	 * Only analyses the methods accepted by {@code methods}.
+	 */
+	IndexReferenceVisitor(JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, EntryPool entryPool, Predicate<MethodEntry> methods, int api) {
 		super(api);
 		this.indexer = indexer;
 		this.entryIndex = entryIndex;
 		this.inheritanceIndex = inheritanceIndex;
+		this.entryPool = entryPool;
+		this.methods = methods;
 	}
 
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-		classEntry = new ClassEntry(name);
+		classEntry = entryPool.getClassEntry(name);
 		className = name;
 	}
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-		MethodDefEntry entry = new MethodDefEntry(classEntry, name, new MethodDescriptor(desc), Signature.createSignature(signature), new AccessFlags(access));
-		return new MethodNodeWithAction(api, access, name, desc, signature, exceptions, methodNode -> {
-			try {
-				new Analyzer<>(new MethodInterpreter(entry, indexer, entryIndex, inheritanceIndex)).analyze(className, methodNode);
-			} catch (AnalyzerException e) {
-				throw new RuntimeException(e);
-			}
-		});
+		if (!methods.test(entryPool.getMethodEntry(className, name, desc))) {
+			return null;
+		}
+
+		MethodDefEntry entry = new MethodDefEntry(classEntry, name, MethodDescriptor.parse(desc), Signature.createSignature(signature), new AccessFlags(access));
+		return new MethodNodeWithAction(api, access, name, desc, signature, exceptions, methodNode -> analyzeMethod(indexer, entryIndex, inheritanceIndex, entryPool, className, entry, methodNode));
+	}
+
+	static void analyzeMethod(JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, EntryPool entryPool, String className, MethodDefEntry entry, MethodNode methodNode) {
+		try {
+			new Analyzer<>(new MethodInterpreter(entry, indexer, entryIndex, inheritanceIndex, entryPool)).analyze(className, methodNode);
+		} catch (AnalyzerException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	static boolean isLambdaMetafactory(Handle bsm) {
+		return "java/lang/invoke/LambdaMetafactory".equals(bsm.getOwner()) && "metafactory".equals(bsm.getName());
+	}
+
+	static Lambda parseLambda(EntryPool entryPool, String name, String desc, Object[] bsmArgs) {
+		Type samMethodType = (Type) bsmArgs[0];
+		Handle implMethod = (Handle) bsmArgs[1];
+		Type instantiatedMethodType = (Type) bsmArgs[2];
+
+		return new Lambda(
+				name,
+				entryPool.getMethodDescriptor(desc),
+				entryPool.getMethodDescriptor(samMethodType.getDescriptor()),
+				getHandleEntry(entryPool, implMethod),
+				entryPool.getMethodDescriptor(instantiatedMethodType.getDescriptor())
+		);
+	}
+
+	private static ParentedEntry<?> getHandleEntry(EntryPool entryPool, Handle handle) {
+		switch (handle.getTag()) {
+			case Opcodes.H_GETFIELD:
+			case Opcodes.H_GETSTATIC:
+			case Opcodes.H_PUTFIELD:
+			case Opcodes.H_PUTSTATIC:
+				return entryPool.getFieldEntry(handle.getOwner(), handle.getName(), handle.getDesc());
+			case Opcodes.H_INVOKEINTERFACE:
+			case Opcodes.H_INVOKESPECIAL:
+			case Opcodes.H_INVOKESTATIC:
+			case Opcodes.H_INVOKEVIRTUAL:
+			case Opcodes.H_NEWINVOKESPECIAL:
+				return entryPool.getMethodEntry(handle.getOwner(), handle.getName(), handle.getDesc());
+		}
+
+		throw new RuntimeException("Invalid handle tag " + handle.getTag());
 	}
 
 	private static class MethodInterpreter extends InterpreterPair<BasicValue, SourceValue> {
 		private final MethodDefEntry callerEntry;
 		private JarIndexer indexer;
+		private final EntryPool entryPool;
 
-		public MethodInterpreter(MethodDefEntry callerEntry, JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex) {
+		public MethodInterpreter(MethodDefEntry callerEntry, JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, EntryPool entryPool) {
 			super(new IndexSimpleVerifier(entryIndex, inheritanceIndex), new SourceInterpreter());
 			this.callerEntry = callerEntry;
 			this.indexer = indexer;
+			this.entryPool = entryPool;
 		}
 
 		@Override
 		public PairValue<BasicValue, SourceValue> newOperation(AbstractInsnNode insn) throws AnalyzerException {
 			if (insn.getOpcode() == Opcodes.GETSTATIC) {
 				FieldInsnNode field = (FieldInsnNode) insn;
-				indexer.indexFieldReference(callerEntry, FieldEntry.parse(field.owner, field.name, field.desc), ReferenceTargetType.none());
+				indexer.indexFieldReference(callerEntry, entryPool.getFieldEntry(field.owner, field.name, field.desc), ReferenceTargetType.none());
 			}
 
 			return super.newOperation(insn);
@@ -75,12 +135,12 @@ public class IndexReferenceVisitor extends ClassVisitor {
 		public PairValue<BasicValue, SourceValue> unaryOperation(AbstractInsnNode insn, PairValue<BasicValue, SourceValue> value) throws AnalyzerException {
 			if (insn.getOpcode() == Opcodes.PUTSTATIC) {
 				FieldInsnNode field = (FieldInsnNode) insn;
-				indexer.indexFieldReference(callerEntry, FieldEntry.parse(field.owner, field.name, field.desc), ReferenceTargetType.none());
+				indexer.indexFieldReference(callerEntry, entryPool.getFieldEntry(field.owner, field.name, field.desc), ReferenceTargetType.none());
 			}
 
 			if (insn.getOpcode() == Opcodes.GETFIELD) {
 				FieldInsnNode field = (FieldInsnNode) insn;
-				indexer.indexFieldReference(callerEntry, FieldEntry.parse(field.owner, field.name, field.desc), getReferenceTargetType(value, insn));
+				indexer.indexFieldReference(callerEntry, entryPool.getFieldEntry(field.owner, field.name, field.desc), getReferenceTargetType(value, insn));
 			}
 
 			return super.unaryOperation(insn, value);
@@ -91,7 +151,7 @@ public class IndexReferenceVisitor extends ClassVisitor {
 		public PairValue<BasicValue, SourceValue> binaryOperation(AbstractInsnNode insn, PairValue<BasicValue, SourceValue> value1, PairValue<BasicValue, SourceValue> value2) throws AnalyzerException {
 			if (insn.getOpcode() == Opcodes.PUTFIELD) {
 				FieldInsnNode field = (FieldInsnNode) insn;
-				FieldEntry fieldEntry = FieldEntry.parse(field.owner, field.name, field.desc);
+				FieldEntry fieldEntry = entryPool.getFieldEntry(field.owner, field.name, field.desc);
 				indexer.indexFieldReference(callerEntry, fieldEntry, ReferenceTargetType.none());
 			}
 
@@ -102,20 +162,19 @@ public class IndexReferenceVisitor extends ClassVisitor {
 		public PairValue<BasicValue, SourceValue> naryOperation(AbstractInsnNode insn, List<? extends PairValue<BasicValue, SourceValue>> values) throws AnalyzerException {
 			if (insn.getOpcode() == Opcodes.INVOKEINTERFACE || insn.getOpcode() == Opcodes.INVOKESPECIAL || insn.getOpcode() == Opcodes.INVOKEVIRTUAL) {
 				MethodInsnNode methodInsn = (MethodInsnNode) insn;
-				indexer.indexMethodReference(callerEntry, MethodEntry.parse(methodInsn.owner, methodInsn.name, methodInsn.desc), getReferenceTargetType(values.get(0), insn));
+				indexer.indexMethodReference(callerEntry, entryPool.getMethodEntry(methodInsn.owner, methodInsn.name, methodInsn.desc), getReferenceTargetType(values.get(0), insn));
 			}
 
 			if (insn.getOpcode() == Opcodes.INVOKESTATIC) {
 				MethodInsnNode methodInsn = (MethodInsnNode) insn;
-				indexer.indexMethodReference(callerEntry, MethodEntry.parse(methodInsn.owner, methodInsn.name, methodInsn.desc), ReferenceTargetType.none());
+				indexer.indexMethodReference(callerEntry, entryPool.getMethodEntry(methodInsn.owner, methodInsn.name, methodInsn.desc), ReferenceTargetType.none());
 			}
 
 			if (insn.getOpcode() == Opcodes.INVOKEDYNAMIC) {
 				InvokeDynamicInsnNode invokeDynamicInsn = (InvokeDynamicInsnNode) insn;
 				List<AbstractInsnNode> args = values.stream().map(v -> v.right.insns.stream().findFirst().orElseThrow(AssertionError::new)).collect(Collectors.toList());
 
-				if ("java/lang/invoke/LambdaMetafactory".equals(invokeDynamicInsn.bsm.getOwner()) && "metafactory".equals(invokeDynamicInsn.bsm.getName())) {
-					Type samMethodType = (Type) invokeDynamicInsn.bsmArgs[0];
+				if (isLambdaMetafactory(invokeDynamicInsn.bsm)) {
 					Handle implMethod = (Handle) invokeDynamicInsn.bsmArgs[1];
 					Type instantiatedMethodType = (Type) invokeDynamicInsn.bsmArgs[2];
 
@@ -130,13 +189,7 @@ public class IndexReferenceVisitor extends ClassVisitor {
 						targetType = ReferenceTargetType.none();
 					}
 
-					indexer.indexLambda(callerEntry, new Lambda(
-							invokeDynamicInsn.name,
-							new MethodDescriptor(invokeDynamicInsn.desc),
-							new MethodDescriptor(samMethodType.getDescriptor()),
-							getHandleEntry(implMethod),
-							new MethodDescriptor(instantiatedMethodType.getDescriptor())
-					), targetType);
+					indexer.indexLambda(callerEntry, parseLambda(entryPool, invokeDynamicInsn.name, invokeDynamicInsn.desc, invokeDynamicInsn.bsmArgs), targetType);
 				}
 			}
 
@@ -149,32 +202,14 @@ public class IndexReferenceVisitor extends ClassVisitor {
 			}
 
 			if (target.left.getType().getSort() == Type.OBJECT) {
-				return ReferenceTargetType.classType(new ClassEntry(target.left.getType().getInternalName()));
+				return ReferenceTargetType.classType(entryPool.getClassEntry(target.left.getType().getInternalName()));
 			}
 
 			if (target.left.getType().getSort() == Type.ARRAY) {
-				return ReferenceTargetType.classType(new ClassEntry("java/lang/Object"));
+				return ReferenceTargetType.classType(entryPool.getClassEntry("java/lang/Object"));
 			}
 
 			throw new AnalyzerException(insn, "called method on or accessed field of non-object type");
 		}
-
-		private static ParentedEntry<?> getHandleEntry(Handle handle) {
-			switch (handle.getTag()) {
-				case Opcodes.H_GETFIELD:
-				case Opcodes.H_GETSTATIC:
-				case Opcodes.H_PUTFIELD:
-				case Opcodes.H_PUTSTATIC:
-					return FieldEntry.parse(handle.getOwner(), handle.getName(), handle.getDesc());
-				case Opcodes.H_INVOKEINTERFACE:
-				case Opcodes.H_INVOKESPECIAL:
-				case Opcodes.H_INVOKESTATIC:
-				case Opcodes.H_INVOKEVIRTUAL:
-				case Opcodes.H_NEWINVOKESPECIAL:
-					return MethodEntry.parse(handle.getOwner(), handle.getName(), handle.getDesc());
-			}
-
-			throw new RuntimeException("Invalid handle tag " + handle.getTag());
-		}
 	}
 }
@@ -0,0 +1,267 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The transitive ancestors and descendants of every class in an {@link InheritanceIndex}, computed
+ * once so that queries do not have to walk the hierarchy.
+ *
+ * <p>Classes are numbered depth first from the roots of the hierarchy, which keeps the descendants
+ * of a class in a narrow range of ids. Each closure is then stored as whichever is smaller: a
+ * bitmap covering just that range, or a sorted array of ids.
+ */
+final class InheritanceClosure {
+	private static final IdSet EMPTY = new IdSet(new int[0]);
+
+	private final EntryTable classes = new EntryTable();
+	private final IdSet[] ancestors;
+	private final IdSet[] descendants;
+
+	InheritanceClosure(Multimap<ClassEntry, ClassEntry> classParents, Multimap<ClassEntry, ClassEntry> classChildren) {
+		// roots first, so that every subtree gets consecutive ids. Whatever is left over is part of a cycle
+		for (ClassEntry classEntry : classChildren.keySet()) {
+			if (!classParents.containsKey(classEntry)) {
+				number(classEntry, classChildren);
+			}
+		}
+		for (ClassEntry classEntry : classParents.keySet()) {
+			number(classEntry, classChildren);
+		}
+		classes.trim();
+
+		int size = classes.size();
+		int[][] parents = new int[size][];
+		for (int id = 0; id < size; id++) {
+			parents[id] = toIds(classParents.get(classes.get(id)));
+		}
+
+		BitSet[] ancestorBits = new BitSet[size];
+		byte[] state = new byte[size];
+		for (int id = 0; id < size; id++) {
+			collectAncestors(id, parents, ancestorBits, state);
+		}
+
+		BitSet[] descendantBits = new BitSet[size];
+		for (int id = 0; id < size; id++) {
+			BitSet bits = ancestorBits[id];
+			for (int ancestor = bits.nextSetBit(0); ancestor >= 0; ancestor = bits.nextSetBit(ancestor + 1)) {
+				if (descendantBits[ancestor] == null) {
+					descendantBits[ancestor] = new BitSet();
+				}
+				descendantBits[ancestor].set(id);
+			}
+		}
+
+		ancestors = new IdSet[size];
+		descendants = new IdSet[size];
+		for (int id = 0; id < size; id++) {
+			ancestors[id] = IdSet.of(ancestorBits[id]);
+			descendants[id] = descendantBits[id] != null ? IdSet.of(descendantBits[id]) : EMPTY;
+		}
+	}
+
+	private void number(ClassEntry root, Multimap<ClassEntry, ClassEntry> classChildren) {
+		if (classes.getId(root) >= 0) {
+			return;
+		}
+
+		Deque<ClassEntry> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ClassEntry classEntry = stack.pop();
+			if (classes.getId(classEntry) >= 0) {
+				continue;
+			}
+
+			classes.add(classEntry);
+			for (ClassEntry child : classChildren.get(classEntry)) {
+				if (classes.getId(child) < 0) {
+					stack.push(child);
+				}
+			}
+		}
+	}
+
+	private int[] toIds(Collection<ClassEntry> classEntries) {
+		int[] ids = new int[classEntries.size()];
+		int i = 0;
+		for (ClassEntry classEntry : classEntries) {
+			ids[i++] = classes.getId(classEntry);
+		}
+		return ids;
+	}
+
+	private static BitSet collectAncestors(int id, int[][] parents, BitSet[] ancestorBits, byte[] state) {
+		if (state[id] == 2) {
+			return ancestorBits[id];
+		}
+
+		BitSet bits = new BitSet();
+		if (state[id] == 1) {
+			// the hierarchy loops back on itself, the rest of the loop is collected further up
+			return bits;
+		}
+
+		state[id] = 1;
+		for (int parent : parents[id]) {
+			bits.set(parent);
+			bits.or(collectAncestors(parent, parents, ancestorBits, state));
+		}
+		bits.clear(id);
+
+		state[id] = 2;
+		ancestorBits[id] = bits;
+		return bits;
+	}
+
+	Set<ClassEntry> getAncestors(ClassEntry classEntry) {
+		int id = classes.getId(classEntry);
+		return new ClassSet(id >= 0 ? ancestors[id] : EMPTY);
+	}
+
+	Set<ClassEntry> getDescendants(ClassEntry classEntry) {
+		int id = classes.getId(classEntry);
+		return new ClassSet(id >= 0 ? descendants[id] : EMPTY);
+	}
+
+	/**
+	 * A read-only view of the classes in an id set.
+	 */
+	private final class ClassSet extends AbstractSet<ClassEntry> {
+		private final IdSet ids;
+
+		private ClassSet(IdSet ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof ClassEntry)) {
+				return false;
+			}
+
+			int id = classes.getId((ClassEntry) o);
+			return id >= 0 && ids.contains(id);
+		}
+
+		@Override
+		public Iterator<ClassEntry> iterator() {
+			return new Iterator<ClassEntry>() {
+				private int next = ids.next(0);
+
+				@Override
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				@Override
+				public ClassEntry next() {
+					if (next < 0) {
+						throw new NoSuchElementException();
+					}
+
+					ClassEntry classEntry = classes.get(next);
+					next = ids.next(next + 1);
+					return classEntry;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return ids.size();
+		}
+	}
+
+	/**
+	 * An immutable set of ids, either as a bitmap starting at the word of the lowest id or as a
+	 * sorted array.
+	 */
+	private static final class IdSet {
+		private final int firstWord;
+		private final long[] words;
+		private final int[] ids;
+		private final int size;
+
+		private IdSet(int firstWord, long[] words, int size) {
+			this.firstWord = firstWord;
+			this.words = words;
+			this.ids = null;
+			this.size = size;
+		}
+
+		private IdSet(int[] ids) {
+			this.firstWord = 0;
+			this.words = null;
+			this.ids = ids;
+			this.size = ids.length;
+		}
+
+		static IdSet of(BitSet bits) {
+			int size = bits.cardinality();
+			if (size == 0) {
+				return EMPTY;
+			}
+
+			int firstWord = bits.nextSetBit(0) >>> 6;
+			int wordCount = ((bits.length() - 1) >>> 6) - firstWord + 1;
+			if (wordCount * 2 > size) {
+				return new IdSet(bits.stream().toArray());
+			}
+
+			long[] words = Arrays.copyOfRange(bits.toLongArray(), firstWord, firstWord + wordCount);
+			return new IdSet(firstWord, words, size);
+		}
+
+		boolean contains(int id) {
+			if (ids != null) {
+				return Arrays.binarySearch(ids, id) >= 0;
+			}
+
+			int word = (id >>> 6) - firstWord;
+			return word >= 0 && word < words.length && (words[word] & (1L << id)) != 0;
+		}
+
+		/**
+		 * @return the lowest id in the set that is at least {@code from}, or -1 if there is none
+		 */
+		int next(int from) {
+			if (ids != null) {
+				int index = Arrays.binarySearch(ids, from);
+				if (index < 0) {
+					index = -index - 1;
+				}
+				return index < ids.length ? ids[index] : -1;
+			}
+
+			int word = Math.max((from >>> 6) - firstWord, 0);
+			if (word >= words.length) {
+				return -1;
+			}
+
+			long bits = (from >>> 6) - firstWord == word ? words[word] & (-1L << from) : words[word];
+			while (bits == 0) {
+				if (++word >= words.length) {
+					return -1;
+				}
+				bits = words[word];
+			}
+			return ((word + firstWord) << 6) + Long.numberOfTrailingZeros(bits);
+		}
+
+		int size() {
+			return size;
+		}
+	}
+}
@@ -13,13 +13,12 @@ package cuchaz.enigma.analysis.index;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Set;
 
 public class InheritanceIndex implements JarIndexer {
@@ -28,6 +27,14 @@ public class InheritanceIndex implements JarIndexer {
 	private Multimap<ClassEntry, ClassEntry> classParents = HashMultimap.create();
 	private Multimap<ClassEntry, ClassEntry> classChildren = HashMultimap.create();
 
+	// transitive closure of the hierarchy, dropped whenever an edge changes and rebuilt on demand
+	@Nullable
+	private volatile InheritanceClosure closure;
+
+	// hierarchy of the library classes above the indexed ones, which the ancestors reach into
+	@Nullable
+	private InheritanceIndex libraries;
+
 	public InheritanceIndex(EntryIndex entryIndex) {
 		this.entryIndex = entryIndex;
 	}
@@ -51,58 +58,120 @@ public class InheritanceIndex implements JarIndexer {
 	private void indexParent(ClassEntry childEntry, ClassEntry parentEntry) {
 		classParents.put(childEntry, parentEntry);
 		classChildren.put(parentEntry, childEntry);
+		closure = null;
 	}
 
-	public Collection<ClassEntry> getParents(ClassEntry classEntry) {
-		return classParents.get(classEntry);
+	@Override
+	public InheritanceIndex createShard() {
+		return new InheritanceIndex(entryIndex);
 	}
 
-	public Collection<ClassEntry> getChildren(ClassEntry classEntry) {
-		return classChildren.get(classEntry);
+	@Override
+	public void mergeShard(JarIndexer shard) {
+		InheritanceIndex inheritanceShard = (InheritanceIndex) shard;
+		classParents.putAll(inheritanceShard.classParents);
+		classChildren.putAll(inheritanceShard.classChildren);
+		closure = null;
 	}
 
-	public Collection<ClassEntry> getDescendants(ClassEntry classEntry) {
-		Collection<ClassEntry> descendants = new HashSet<>();
+	@Override
+	public void processIndex(JarIndex index) {
+		closure = createClosure();
+	}
 
-		LinkedList<ClassEntry> descendantQueue = new LinkedList<>();
-		descendantQueue.push(classEntry);
+	/**
+	 * Drops the parents declared by the given classes. Edges from other classes to them are kept,
+	 * since those are declared by the other classes.
+	 */
+	void removeClasses(Set<ClassEntry> classEntries) {
+		for (ClassEntry classEntry : classEntries) {
+			for (ClassEntry parent : classParents.removeAll(classEntry)) {
+				classChildren.remove(parent, classEntry);
+			}
+		}
+		closure = null;
+	}
 
-		while (!descendantQueue.isEmpty()) {
-			ClassEntry descendant = descendantQueue.pop();
-			Collection<ClassEntry> children = getChildren(descendant);
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		out.writeMultimap(classParents, out::writeEntry, out::writeEntry);
+	}
 
-			children.forEach(descendantQueue::push);
-			descendants.addAll(children);
+	void readSnapshot(SnapshotInput in) {
+		in.readMultimap(classParents, in::readEntry, in::readEntry);
+		classParents.forEach((child, parent) -> classChildren.put(parent, child));
+		closure = createClosure();
+	}
+
+	/**
+	 * @return the direct parents of the class, which are looked up in the libraries for a library
+	 * class
+	 */
+	public Collection<ClassEntry> getParents(ClassEntry classEntry) {
+		if (libraries != null && isLibraryClass(classEntry)) {
+			return libraries.getParents(classEntry);
 		}
+		return classParents.get(classEntry);
+	}
 
-		return descendants;
+	public Collection<ClassEntry> getChildren(ClassEntry classEntry) {
+		return classChildren.get(classEntry);
 	}
 
-	public Set<ClassEntry> getAncestors(ClassEntry classEntry) {
-		Set<ClassEntry> ancestors = Sets.newHashSet();
+	public Collection<ClassEntry> getDescendants(ClassEntry classEntry) {
+		return getClosure().getDescendants(classEntry);
+	}
 
-		LinkedList<ClassEntry> ancestorQueue = new LinkedList<>();
-		ancestorQueue.push(classEntry);
+	/**
+	 * @return every class the given class inherits from, including the library classes above it
+	 * when libraries were indexed
+	 */
+	public Set<ClassEntry> getAncestors(ClassEntry classEntry) {
+		return getClosure().getAncestors(classEntry);
+	}
 
-		while (!ancestorQueue.isEmpty()) {
-			ClassEntry ancestor = ancestorQueue.pop();
-			Collection<ClassEntry> parents = getParents(ancestor);
+	private InheritanceClosure getClosure() {
+		InheritanceClosure closure = this.closure;
+		if (closure == null) {
+			synchronized (this) {
+				closure = this.closure;
+				if (closure == null) {
+					this.closure = closure = createClosure();
+				}
+			}
+		}
+		return closure;
+	}
 
-			parents.forEach(ancestorQueue::push);
-			ancestors.addAll(parents);
+	private InheritanceClosure createClosure() {
+		if (libraries == null) {
+			return new InheritanceClosure(classParents, classChildren);
 		}
 
-		return ancestors;
+		// library classes never extend the jar's classes, so the edges of both only meet at the
+		// library parents of the jar's classes
+		Multimap<ClassEntry, ClassEntry> parents = HashMultimap.create(libraries.classParents);
+		parents.putAll(classParents);
+		Multimap<ClassEntry, ClassEntry> children = HashMultimap.create(libraries.classChildren);
+		children.putAll(classChildren);
+		return new InheritanceClosure(parents, children);
+	}
+
+	void setLibraries(@Nullable InheritanceIndex libraries) {
+		this.libraries = libraries;
+		closure = null;
 	}
 
 	public Relation computeClassRelation(ClassEntry classEntry, ClassEntry potentialAncestor) {
 		if (potentialAncestor.getName().equals("java/lang/Object")) return Relation.RELATED;
-		if (!entryIndex.hasClass(classEntry)) return Relation.UNKNOWN;
+		if (!isKnownClass(classEntry)) return Relation.UNKNOWN;
+
+		Set<ClassEntry> ancestors = getAncestors(classEntry);
+		if (ancestors.contains(potentialAncestor)) {
+			return Relation.RELATED;
+		}
 
-		for (ClassEntry ancestor : getAncestors(classEntry)) {
-			if (potentialAncestor.equals(ancestor)) {
-				return Relation.RELATED;
-			} else if (!entryIndex.hasClass(ancestor)) {
+		for (ClassEntry ancestor : ancestors) {
+			if (!isKnownClass(ancestor)) {
 				return Relation.UNKNOWN;
 			}
 		}
@@ -110,6 +179,14 @@ public class InheritanceIndex implements JarIndexer {
 		return Relation.UNRELATED;
 	}
 
+	private boolean isKnownClass(ClassEntry classEntry) {
+		return entryIndex.hasClass(classEntry) || isLibraryClass(classEntry);
+	}
+
+	private boolean isLibraryClass(ClassEntry classEntry) {
+		return libraries != null && libraries.entryIndex.hasClass(classEntry);
+	}
+
 	public boolean isParent(ClassEntry classEntry) {
 		return classChildren.containsKey(classEntry);
 	}
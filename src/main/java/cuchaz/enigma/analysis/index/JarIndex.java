@@ -13,21 +13,39 @@ package cuchaz.enigma.analysis.index;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.hash.HashCode;
+import cuchaz.enigma.ClassProvider;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.ReferenceTargetType;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.IndexEntryResolver;
 import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.*;
 import cuchaz.enigma.utils.I18n;
 
 import cuchaz.enigma.utils.Utils;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class JarIndex implements JarIndexer {
 	private final EntryIndex entryIndex;
@@ -35,20 +53,34 @@ public class JarIndex implements JarIndexer {
 	private final ReferenceIndex referenceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
 	private final PackageVisibilityIndex packageVisibilityIndex;
-	private final EntryResolver entryResolver;
+	private final MethodGroupIndex methodGroupIndex;
+	private final IndexEntryResolver entryResolver;
+	private final EntryPool entryPool;
 
-	private final Collection<JarIndexer> indexers;
+	private final List<JarIndexer> indexers;
 
 	private final Multimap<String, MethodDefEntry> methodImplementations = HashMultimap.create();
 
+	@Nullable
+	private JarIndex libraryIndex;
+
+	// digests of the class files this index was built from, used to find what changed on reindex
+	private Map<String, HashCode> classHashes = Collections.emptyMap();
+
 	public JarIndex(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, ReferenceIndex referenceIndex, BridgeMethodIndex bridgeMethodIndex, PackageVisibilityIndex packageVisibilityIndex) {
+		this(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex, new EntryPool());
+	}
+
+	private JarIndex(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, ReferenceIndex referenceIndex, BridgeMethodIndex bridgeMethodIndex, PackageVisibilityIndex packageVisibilityIndex, EntryPool entryPool) {
 		this.entryIndex = entryIndex;
 		this.inheritanceIndex = inheritanceIndex;
 		this.referenceIndex = referenceIndex;
 		this.bridgeMethodIndex = bridgeMethodIndex;
 		this.packageVisibilityIndex = packageVisibilityIndex;
-		this.indexers = Arrays.asList(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex);
+		this.methodGroupIndex = new MethodGroupIndex(entryIndex, inheritanceIndex, bridgeMethodIndex);
+		this.indexers = Arrays.asList(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex, methodGroupIndex);
 		this.entryResolver = new IndexEntryResolver(this);
+		this.entryPool = entryPool;
 	}
 
 	public static JarIndex empty() {
@@ -61,13 +93,34 @@ public class JarIndex implements JarIndexer {
 	}
 
 	public void indexJar(ClassCache classCache, ProgressListener progress) {
+		indexJar(classCache, ReferenceIndexingMode.FULL, progress);
+	}
+
+	public void indexJar(ClassCache classCache, ReferenceIndexingMode referenceMode, ProgressListener progress) {
+		indexJar(classCache, referenceMode, null, progress);
+	}
+
+	/**
+	 * Indexes the jar, also indexing the declarations and hierarchy of the library classes that
+	 * the jar's classes extend, so that classes can be related across the jar boundary.
+	 */
+	public void indexJar(ClassCache classCache, ReferenceIndexingMode referenceMode, @Nullable ClassProvider libraries, ProgressListener progress) {
 		progress.init(4, I18n.translate("progress.jar.indexing"));
+		classHashes = classCache.getClassHashes();
+
+		// declarations are indexed right away, while the reference analysis can only start once all
+		// declarations are known, so it keeps what it needs of the method bodies or reads them again
+		MethodAnalysis methodBodies = new MethodAnalysis(referenceMode, entryPool);
+		List<String> classNames = new ArrayList<>(classCache.getClassNames());
 
 		progress.step(1, I18n.translate("progress.jar.indexing.entries"));
-		classCache.visit(() -> new IndexClassVisitor(this, Utils.ASM_VERSION), ClassReader.SKIP_CODE);
+		indexSharded(shard -> classCache.visitParallel(classNames, () -> new IndexClassVisitor(shard.get(), methodBodies, Utils.ASM_VERSION), methodBodies.getReadFlags()), this::mergeShard);
+		if (libraries != null) {
+			indexLibraries(libraries);
+		}
 
 		progress.step(2, I18n.translate("progress.jar.indexing.references"));
-		classCache.visit(() -> new IndexReferenceVisitor(this, entryIndex, inheritanceIndex, Utils.ASM_VERSION), 0);
+		indexSharded(shard -> methodBodies.run(classCache, classNames, shard, entryIndex, inheritanceIndex), this::mergeShard);
 
 		progress.step(3, I18n.translate("progress.jar.indexing.methods"));
 		bridgeMethodIndex.findBridgeMethods();
@@ -76,9 +129,210 @@ public class JarIndex implements JarIndexer {
 		processIndex(this);
 	}
 
+	/**
+	 * Brings this index up to date with a newer version of the jar it was built from. Only the
+	 * classes that changed and the classes whose references might resolve differently because of
+	 * them are analysed again, everything else is kept as it is.
+	 */
+	public void reindex(ClassCache classCache, ReferenceIndexingMode referenceMode, ProgressListener progress) {
+		progress.init(4, I18n.translate("progress.jar.indexing"));
+
+		Map<String, HashCode> newClassHashes = classCache.getClassHashes();
+		Set<ClassEntry> changedClasses = new HashSet<>();
+		newClassHashes.forEach((className, hash) -> {
+			if (!hash.equals(classHashes.get(className))) {
+				changedClasses.add(new ClassEntry(className));
+			}
+		});
+		for (String className : classHashes.keySet()) {
+			if (!newClassHashes.containsKey(className)) {
+				changedClasses.add(new ClassEntry(className));
+			}
+		}
+
+		// members can move up or down the hierarchy of a changed class, so references to any class
+		// in it may now resolve to a different declaration
+		Set<ClassEntry> affectedClasses = new HashSet<>(changedClasses);
+		for (ClassEntry classEntry : changedClasses) {
+			affectedClasses.addAll(inheritanceIndex.getAncestors(classEntry));
+			affectedClasses.addAll(inheritanceIndex.getDescendants(classEntry));
+		}
+
+		Set<ClassEntry> dirtyClasses = new HashSet<>(changedClasses);
+		dirtyClasses.addAll(referenceIndex.getClassesReferencing(affectedClasses));
+		for (MethodEntry methodEntry : entryIndex.getMethods()) {
+			// bridge detection compares descriptors through the hierarchy
+			if (entryIndex.getMethodAccess(methodEntry).isSynthetic() && mentionsAny(methodEntry.getDesc(), affectedClasses)) {
+				dirtyClasses.add(methodEntry.getParent());
+			}
+		}
+
+		entryIndex.removeClasses(dirtyClasses);
+		inheritanceIndex.removeClasses(dirtyClasses);
+		referenceIndex.removeContexts(dirtyClasses);
+		bridgeMethodIndex.removeClasses(dirtyClasses);
+		for (ClassEntry classEntry : dirtyClasses) {
+			methodImplementations.removeAll(classEntry.getFullName());
+		}
+
+		List<String> dirtyClassNames = dirtyClasses.stream()
+				.map(ClassEntry::getFullName)
+				.filter(newClassHashes::containsKey)
+				.collect(Collectors.toList());
+
+		// references of the dirty classes are collected on their own, since bridge detection needs
+		// them before they are resolved
+		ReferenceIndex dirtyReferences = new ReferenceIndex();
+		MethodAnalysis methodBodies = new MethodAnalysis(referenceMode, entryPool);
+
+		progress.step(1, I18n.translate("progress.jar.indexing.entries"));
+		indexSharded(shard -> classCache.visitParallel(dirtyClassNames, () -> new IndexClassVisitor(shard.get(), methodBodies, Utils.ASM_VERSION), methodBodies.getReadFlags()), shard -> mergeShard(shard, dirtyReferences));
+
+		progress.step(2, I18n.translate("progress.jar.indexing.references"));
+		indexSharded(shard -> methodBodies.run(classCache, dirtyClassNames, shard, entryIndex, inheritanceIndex), shard -> mergeShard(shard, dirtyReferences));
+
+		progress.step(3, I18n.translate("progress.jar.indexing.methods"));
+		BridgeMethodIndex dirtyBridges = new BridgeMethodIndex(entryIndex, inheritanceIndex, dirtyReferences);
+		dirtyBridges.findBridgeMethods(dirtyClasses);
+		bridgeMethodIndex.mergeShard(dirtyBridges);
+
+		progress.step(4, I18n.translate("progress.jar.indexing.process"));
+		affectedClasses.addAll(dirtyClasses);
+		entryResolver.invalidate(affectedClasses);
+
+		dirtyReferences.processIndex(this);
+		referenceIndex.mergeShard(dirtyReferences);
+		bridgeMethodIndex.processIndex(this);
+		invalidateSpecializedResolutions(dirtyBridges.getSpecializedToBridge().keySet());
+		referenceIndex.compact();
+
+		packageVisibilityIndex.update(this, affectedClasses);
+		methodGroupIndex.processIndex(this);
+
+		classHashes = newClassHashes;
+	}
+
+	private void indexLibraries(ClassProvider libraries) {
+		// only the supertypes that are actually reachable from the jar are loaded, and their method
+		// bodies are never analysed
+		libraryIndex = JarIndex.empty();
+
+		Set<ClassEntry> visited = new HashSet<>();
+		Deque<ClassEntry> queue = new ArrayDeque<>();
+		for (ClassEntry classEntry : entryIndex.getClasses()) {
+			queue.addAll(inheritanceIndex.getParents(classEntry));
+		}
+
+		while (!queue.isEmpty()) {
+			ClassEntry classEntry = queue.pop();
+			if (entryIndex.hasClass(classEntry) || !visited.add(classEntry)) {
+				continue;
+			}
+
+			ClassNode node = libraries.getClassNode(classEntry.getFullName());
+			if (node != null) {
+				node.accept(new IndexClassVisitor(libraryIndex, Utils.ASM_VERSION));
+				queue.addAll(libraryIndex.inheritanceIndex.getParents(classEntry));
+			}
+		}
+
+		inheritanceIndex.setLibraries(libraryIndex.inheritanceIndex);
+	}
+
+	private static boolean mentionsAny(MethodDescriptor descriptor, Set<ClassEntry> classEntries) {
+		for (TypeDescriptor type : descriptor.types()) {
+			if (type.containsType() && classEntries.contains(type.getTypeEntry())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void indexSharded(Consumer<Supplier<JarIndex>> task, Consumer<JarIndex> merger) {
+		// every worker thread fills its own shard, which keeps the index callbacks free of locking
+		Map<Thread, JarIndex> shards = new ConcurrentHashMap<>();
+		task.accept(() -> shards.computeIfAbsent(Thread.currentThread(), thread -> createShard()));
+
+		for (JarIndex shard : shards.values()) {
+			merger.accept(shard);
+		}
+	}
+
+	@Override
+	public JarIndex createShard() {
+		EntryIndex entryShard = entryIndex.createShard();
+		InheritanceIndex inheritanceShard = inheritanceIndex.createShard();
+		ReferenceIndex referenceShard = referenceIndex.createShard();
+		BridgeMethodIndex bridgeMethodShard = new BridgeMethodIndex(entryShard, inheritanceShard, referenceShard);
+		// shards share the pool, so that entries parsed on different threads are still deduplicated
+		return new JarIndex(entryShard, inheritanceShard, referenceShard, bridgeMethodShard, new PackageVisibilityIndex(), entryPool);
+	}
+
+	@Override
+	public void mergeShard(JarIndexer shard) {
+		JarIndex indexShard = (JarIndex) shard;
+		for (int i = 0; i < indexers.size(); i++) {
+			indexers.get(i).mergeShard(indexShard.indexers.get(i));
+		}
+
+		methodImplementations.putAll(indexShard.methodImplementations);
+	}
+
+	private void mergeShard(JarIndex shard, ReferenceIndex references) {
+		// shards never hold bridges or partitions, those are only found after merging
+		entryIndex.mergeShard(shard.entryIndex);
+		inheritanceIndex.mergeShard(shard.inheritanceIndex);
+		references.mergeShard(shard.referenceIndex);
+		methodImplementations.putAll(shard.methodImplementations);
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		entryIndex.writeSnapshot(out);
+		inheritanceIndex.writeSnapshot(out);
+		referenceIndex.writeSnapshot(out);
+		bridgeMethodIndex.writeSnapshot(out);
+		packageVisibilityIndex.writeSnapshot(out);
+		out.writeMap(classHashes, out::writeString, hash -> out.writeBytes(hash.asBytes()));
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		entryIndex.readSnapshot(in);
+		inheritanceIndex.readSnapshot(in);
+		referenceIndex.readSnapshot(in);
+		bridgeMethodIndex.readSnapshot(in);
+		packageVisibilityIndex.readSnapshot(in);
+
+		Map<String, HashCode> classHashes = new HashMap<>();
+		in.readMap(in::readString, () -> HashCode.fromBytes(in.readBytes()), classHashes::put);
+		this.classHashes = classHashes;
+
+		for (MethodEntry methodEntry : entryIndex.getMethods()) {
+			if (!methodEntry.isConstructor()) {
+				methodImplementations.put(methodEntry.getParent().getFullName(), (MethodDefEntry) methodEntry);
+			}
+		}
+
+		methodGroupIndex.processIndex(this);
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
+		entryResolver.invalidateAll();
 		indexers.forEach(indexer -> indexer.processIndex(index));
+
+		// the references were resolved before bridge processing added the renamed specialized methods
+		invalidateSpecializedResolutions(bridgeMethodIndex.getSpecializedToBridge().keySet());
+	}
+
+	private void invalidateSpecializedResolutions(Collection<MethodEntry> specializedEntries) {
+		Set<ClassEntry> classEntries = new HashSet<>();
+		for (MethodEntry specializedEntry : specializedEntries) {
+			if (classEntries.add(specializedEntry.getParent())) {
+				classEntries.addAll(inheritanceIndex.getDescendants(specializedEntry.getParent()));
+			}
+		}
+
+		entryResolver.invalidate(classEntries);
 	}
 
 	@Override
@@ -165,7 +419,27 @@ public class JarIndex implements JarIndexer {
 		return packageVisibilityIndex;
 	}
 
+	/**
+	 * Returns the declarations and hierarchy of the library classes above this jar, if libraries
+	 * were given when indexing it.
+	 */
+	@Nullable
+	public JarIndex getLibraryIndex() {
+		return libraryIndex;
+	}
+
+	public MethodGroupIndex getMethodGroupIndex() {
+		return methodGroupIndex;
+	}
+
 	public EntryResolver getEntryResolver() {
 		return entryResolver;
 	}
+
+	/**
+	 * Returns the pool that the entries referenced from this jar are canonicalized through.
+	 */
+	public EntryPool getEntryPool() {
+		return entryPool;
+	}
 }
@@ -0,0 +1,203 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import cuchaz.enigma.Constants;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.utils.I18n;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stores snapshots of processed {@link JarIndex jar indexes} in a directory, keyed by the hash of
+ * the jar contents and the Enigma version that built them. Reopening a jar that was indexed before
+ * then only has to read the snapshot instead of analysing every method again.
+ *
+ * <p>The cache also remembers the last snapshot written for each jar path. When that jar has
+ * changed since, the old snapshot is {@link JarIndex#reindex reindexed} rather than starting over,
+ * and deleted once the new one is written, unless another jar path still points to it. Only the
+ * latest snapshot of each jar path is kept that way.
+ */
+public final class JarIndexCache {
+	private static final int MAGIC = 0x454E4958;
+	// bump whenever the layout written by the indexes changes
+	private static final int FORMAT_VERSION = 4;
+
+	private final Path directory;
+
+	public JarIndexCache(Path directory) {
+		this.directory = directory;
+	}
+
+	public JarIndex index(Path jarPath, ClassCache classCache, ProgressListener progress) throws IOException {
+		return index(jarPath, classCache, ReferenceIndexingMode.FULL, progress);
+	}
+
+	public JarIndex index(Path jarPath, ClassCache classCache, ReferenceIndexingMode referenceMode, ProgressListener progress) throws IOException {
+		HashCode jarHash = com.google.common.io.Files.asByteSource(jarPath.toFile()).hash(Hashing.sha256());
+		String key = getKey(jarHash, referenceMode).toString();
+		Path snapshotPath = directory.resolve(key + ".index");
+
+		JarIndex index = load(snapshotPath, jarHash, referenceMode, progress);
+		if (index != null) {
+			return index;
+		}
+
+		Path latestPath = directory.resolve(getLatestKey(jarPath, referenceMode) + ".latest");
+		index = loadPrevious(latestPath, referenceMode, progress);
+		if (index != null) {
+			index.reindex(classCache, referenceMode, progress);
+		} else {
+			index = classCache.index(referenceMode, progress);
+		}
+
+		try {
+			save(snapshotPath, jarHash, referenceMode, index);
+			updateLatest(latestPath, key);
+		} catch (IOException e) {
+			// the index itself is fine, the next open will just have to build it again
+			System.err.println("Failed to write index snapshot '" + snapshotPath + "'");
+			e.printStackTrace();
+		}
+
+		return index;
+	}
+
+	private static HashCode getKey(HashCode jarHash, ReferenceIndexingMode referenceMode) {
+		return Hashing.sha256().newHasher()
+				.putBytes(jarHash.asBytes())
+				.putString(Constants.VERSION, StandardCharsets.UTF_8)
+				.putInt(FORMAT_VERSION)
+				.putInt(referenceMode.ordinal())
+				.hash();
+	}
+
+	private static HashCode getLatestKey(Path jarPath, ReferenceIndexingMode referenceMode) {
+		return Hashing.sha256().newHasher()
+				.putString(jarPath.toAbsolutePath().normalize().toString(), StandardCharsets.UTF_8)
+				.putInt(referenceMode.ordinal())
+				.hash();
+	}
+
+	@Nullable
+	private JarIndex loadPrevious(Path latestPath, ReferenceIndexingMode referenceMode, ProgressListener progress) {
+		String key = readLatest(latestPath);
+		if (key == null) {
+			return null;
+		}
+
+		// any jar hash is fine here, the snapshot is only used as the starting point of a reindex
+		return load(directory.resolve(key + ".index"), null, referenceMode, progress);
+	}
+
+	@Nullable
+	private static String readLatest(Path latestPath) {
+		if (!Files.isRegularFile(latestPath)) {
+			return null;
+		}
+
+		try {
+			return new String(Files.readAllBytes(latestPath), StandardCharsets.UTF_8).trim();
+		} catch (IOException e) {
+			System.err.println("Ignoring unreadable index snapshot pointer '" + latestPath + "'");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Points the jar path to the given snapshot, and deletes the snapshot it pointed to before if no
+	 * other jar path points to that one.
+	 */
+	private void updateLatest(Path latestPath, String key) throws IOException {
+		String previousKey = readLatest(latestPath);
+		Files.write(latestPath, key.getBytes(StandardCharsets.UTF_8));
+
+		if (previousKey == null || previousKey.equals(key)) {
+			return;
+		}
+
+		try (DirectoryStream<Path> pointers = Files.newDirectoryStream(directory, "*.latest")) {
+			for (Path pointer : pointers) {
+				if (previousKey.equals(readLatest(pointer))) {
+					return;
+				}
+			}
+		}
+		Files.deleteIfExists(directory.resolve(previousKey + ".index"));
+	}
+
+	@Nullable
+	private static JarIndex load(Path snapshotPath, @Nullable HashCode jarHash, ReferenceIndexingMode referenceMode, ProgressListener progress) {
+		if (!Files.isRegularFile(snapshotPath)) {
+			return null;
+		}
+
+		progress.init(1, I18n.translate("progress.jar.indexing"));
+		progress.step(1, I18n.translate("progress.jar.indexing.snapshot"));
+
+		try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			SnapshotInput in = new SnapshotInput(buffer);
+
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !Constants.VERSION.equals(in.readString())
+					|| !matches(in.readBytes(), jarHash) || in.readInt() != referenceMode.ordinal()) {
+				return null;
+			}
+
+			JarIndex index = JarIndex.empty();
+			index.readSnapshot(in);
+			return index;
+		} catch (IOException | RuntimeException e) {
+			// a snapshot that cannot be read is no worse than a missing one
+			System.err.println("Ignoring unreadable index snapshot '" + snapshotPath + "'");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private static boolean matches(byte[] snapshotJarHash, @Nullable HashCode jarHash) {
+		return jarHash == null || Arrays.equals(snapshotJarHash, jarHash.asBytes());
+	}
+
+	private void save(Path snapshotPath, HashCode jarHash, ReferenceIndexingMode referenceMode, JarIndex index) throws IOException {
+		Files.createDirectories(directory);
+
+		// written next to the target and moved over it, so readers never see a partial snapshot
+		Path tempPath = Files.createTempFile(directory, snapshotPath.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+				SnapshotOutput out = new SnapshotOutput(stream);
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeString(Constants.VERSION);
+				out.writeBytes(jarHash.asBytes());
+				out.writeInt(referenceMode.ordinal());
+				index.writeSnapshot(out);
+				out.flush();
+			}
+
+			try {
+				Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+}
@@ -23,6 +23,25 @@ public interface JarIndexer {
 	default void indexLambda(MethodDefEntry callerEntry, Lambda lambda, ReferenceTargetType targetType) {
 	}
 
+	/**
+	 * Creates an empty indexer of the same kind which a single worker thread can fill without
+	 * synchronization. Shards are folded back with {@link #mergeShard(JarIndexer)} before
+	 * {@link #processIndex(JarIndex)} runs.
+	 *
+	 * <p>Indexers that collect anything from the {@code index*} callbacks must override this;
+	 * the default shard discards everything it is given.
+	 */
+	default JarIndexer createShard() {
+		return new JarIndexer() {
+		};
+	}
+
+	/**
+	 * Merges a shard previously created by {@link #createShard()} into this indexer.
+	 */
+	default void mergeShard(JarIndexer shard) {
+	}
+
 	default void processIndex(JarIndex index) {
 	}
 }
@@ -0,0 +1,105 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.translation.representation.entry.EntryPool;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The reference analysis of the methods read while declarations are indexed. The analysis needs
+ * every declaration of the jar, so it only runs once the declaration pass has been merged.
+ *
+ * <p>Under {@link ReferenceIndexingMode#FAST} each method body is reduced to its
+ * {@link MethodReferences} during the declaration pass, and only those are buffered. The few
+ * methods that need the dataflow analysis after all are read again from the class cache. Under
+ * {@link ReferenceIndexingMode#FULL} every method needs the dataflow analysis, which needs the whole
+ * instruction list, so nothing is buffered: the declaration pass skips the code, and the classes
+ * are read again one at a time for the analysis. That keeps the heap bounded by the class cache
+ * rather than by the size of the jar.
+ */
+final class MethodAnalysis {
+	private final ReferenceIndexingMode referenceMode;
+	private final EntryPool entryPool;
+	private final List<Body> bodies = Collections.synchronizedList(new ArrayList<>());
+
+	MethodAnalysis(ReferenceIndexingMode referenceMode, EntryPool entryPool) {
+		this.referenceMode = referenceMode;
+		this.entryPool = entryPool;
+	}
+
+	/**
+	 * @return the flags the declaration pass has to read classes with
+	 */
+	int getReadFlags() {
+		int flags = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+		return referenceMode == ReferenceIndexingMode.FULL ? flags | ClassReader.SKIP_CODE : flags;
+	}
+
+	/**
+	 * @return a visitor that buffers what the analysis needs from the body of the method, or
+	 * {@code null} if nothing is needed from it yet
+	 */
+	@Nullable
+	MethodVisitor visitMethod(int api, MethodDefEntry entry) {
+		if (referenceMode == ReferenceIndexingMode.FULL) {
+			return null;
+		}
+
+		MethodReferences references = new MethodReferences(api, entryPool);
+		bodies.add(new Body(entry, references));
+		return references;
+	}
+
+	/**
+	 * Indexes the references of every method of the given classes into the shards, then drops the
+	 * buffer.
+	 *
+	 * @param classCache the classes the declarations were read from
+	 * @param classNames the classes the declaration pass visited
+	 */
+	void run(ClassCache classCache, List<String> classNames, Supplier<JarIndex> shard, EntryIndex entryIndex, InheritanceIndex inheritanceIndex) {
+		if (referenceMode == ReferenceIndexingMode.FULL) {
+			classCache.visitParallel(classNames, () -> new IndexReferenceVisitor(shard.get(), entryIndex, inheritanceIndex, entryPool, Utils.ASM_VERSION), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		} else {
+			ProtectedAccessFilter filter = new ProtectedAccessFilter(entryIndex, inheritanceIndex);
+			Set<MethodEntry> typedMethods = ConcurrentHashMap.newKeySet();
+			bodies.parallelStream().forEach(body -> {
+				if (filter.needsTargetTypes(body.entry.getParent(), body.references)) {
+					typedMethods.add(body.entry);
+				} else {
+					body.references.index(shard.get(), body.entry);
+				}
+			});
+
+			List<String> typedClassNames = typedMethods.stream()
+					.map(method -> method.getParent().getFullName())
+					.distinct()
+					.collect(Collectors.toList());
+			classCache.visitParallel(typedClassNames, () -> new IndexReferenceVisitor(shard.get(), entryIndex, inheritanceIndex, entryPool, typedMethods::contains, Utils.ASM_VERSION), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		}
+
+		bodies.clear();
+	}
+
+	private static final class Body {
+		final MethodDefEntry entry;
+		final MethodReferences references;
+
+		Body(MethodDefEntry entry, MethodReferences references) {
+			this.entry = entry;
+			this.references = references;
+		}
+	}
+}
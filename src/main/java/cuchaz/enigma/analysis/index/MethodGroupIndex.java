@@ -0,0 +1,124 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the methods of the jar that have to share a name: a method, everything overriding or
+ * implementing it, and the bridges calling any of those. When libraries were indexed, methods of
+ * the jar that override the same library method are grouped too, although groups only ever hold
+ * methods of the jar.
+ */
+public class MethodGroupIndex implements JarIndexer {
+	private final EntryIndex entryIndex;
+	private final InheritanceIndex inheritanceIndex;
+	private final BridgeMethodIndex bridgeMethodIndex;
+
+	// every method of a group maps to the same set, methods without relatives are left out
+	@Nullable
+	private volatile Map<MethodEntry, Set<MethodEntry>> groups;
+
+	public MethodGroupIndex(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, BridgeMethodIndex bridgeMethodIndex) {
+		this.entryIndex = entryIndex;
+		this.inheritanceIndex = inheritanceIndex;
+		this.bridgeMethodIndex = bridgeMethodIndex;
+	}
+
+	@Override
+	public void processIndex(JarIndex index) {
+		JarIndex libraryIndex = index.getLibraryIndex();
+		groups = computeGroups(libraryIndex != null ? libraryIndex.getEntryIndex() : null);
+	}
+
+	private Map<MethodEntry, Set<MethodEntry>> computeGroups(@Nullable EntryIndex libraryEntryIndex) {
+		EntryTable methods = new EntryTable();
+		addMethods(methods, entryIndex);
+		int jarMethodCount = methods.size();
+		if (libraryEntryIndex != null) {
+			// library methods only connect the methods of the jar overriding them
+			addMethods(methods, libraryEntryIndex);
+		}
+
+		UnionFind unionFind = new UnionFind(methods.size());
+		for (int id = 0; id < jarMethodCount; id++) {
+			MethodEntry methodEntry = methods.get(id);
+			for (ClassEntry ancestor : inheritanceIndex.getAncestors(methodEntry.getParent())) {
+				int overridden = methods.getId(methodEntry.withParent(ancestor));
+				if (overridden >= 0) {
+					unionFind.union(id, overridden);
+				}
+			}
+		}
+
+		bridgeMethodIndex.getSpecializedToBridge().forEach((specialized, bridge) -> {
+			int specializedId = methods.getId(specialized);
+			int bridgeId = methods.getId(bridge);
+			if (specializedId >= 0 && bridgeId >= 0) {
+				unionFind.union(specializedId, bridgeId);
+			}
+		});
+
+		Map<Integer, Set<MethodEntry>> members = new HashMap<>();
+		for (int id = 0; id < jarMethodCount; id++) {
+			if (unionFind.size(id) > 1) {
+				members.computeIfAbsent(unionFind.find(id), root -> new HashSet<>()).add(methods.get(id));
+			}
+		}
+
+		Map<MethodEntry, Set<MethodEntry>> groups = new HashMap<>();
+		for (Set<MethodEntry> group : members.values()) {
+			// a method that only overrides library methods has no relatives in the jar
+			if (group.size() < 2) {
+				continue;
+			}
+
+			Set<MethodEntry> sharedGroup = Collections.unmodifiableSet(group);
+			for (MethodEntry methodEntry : group) {
+				groups.put(methodEntry, sharedGroup);
+			}
+		}
+
+		return groups;
+	}
+
+	private static void addMethods(EntryTable methods, EntryIndex entryIndex) {
+		for (MethodEntry methodEntry : entryIndex.getMethods()) {
+			if (canInherit(entryIndex, methodEntry)) {
+				// plain entries, so that the groups do not hand out definitions
+				methods.add(new MethodEntry(methodEntry.getParent(), methodEntry.getName(), methodEntry.getDesc()));
+			}
+		}
+	}
+
+	// final methods can still override or implement others, they just cannot be overridden themselves
+	private static boolean canInherit(EntryIndex entryIndex, MethodEntry methodEntry) {
+		AccessFlags access = entryIndex.getMethodAccess(methodEntry);
+		return access != null && !methodEntry.isConstructor() && !access.isPrivate() && !access.isStatic();
+	}
+
+	/**
+	 * Returns the methods that have to be renamed along with the given method, including itself.
+	 */
+	public Set<MethodEntry> getGroup(MethodEntry methodEntry) {
+		Map<MethodEntry, Set<MethodEntry>> groups = this.groups;
+		if (groups == null) {
+			synchronized (this) {
+				groups = this.groups;
+				if (groups == null) {
+					this.groups = groups = computeGroups(null);
+				}
+			}
+		}
+
+		Set<MethodEntry> group = groups.get(methodEntry);
+		return group != null ? group : Collections.singleton(methodEntry);
+	}
+}
@@ -0,0 +1,98 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.entry.EntryPool;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.Arrays;
+
+/**
+ * The field, method and lambda references of a method body in the order they are made, with the
+ * opcode that makes each of them. Everything else in the body is dropped while it is read, so this
+ * is all that is kept of the methods that are scanned linearly.
+ */
+final class MethodReferences extends MethodVisitor {
+	private final EntryPool entryPool;
+
+	private int[] opcodes = new int[8];
+	// a FieldEntry, MethodEntry or Lambda for each opcode
+	private Object[] targets = new Object[8];
+	private int size;
+
+	MethodReferences(int api, EntryPool entryPool) {
+		super(api);
+		this.entryPool = entryPool;
+	}
+
+	@Override
+	public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+		add(opcode, entryPool.getFieldEntry(owner, name, descriptor));
+	}
+
+	@Override
+	public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+		add(opcode, entryPool.getMethodEntry(owner, name, descriptor));
+	}
+
+	@Override
+	public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+		if (IndexReferenceVisitor.isLambdaMetafactory(bootstrapMethodHandle)) {
+			add(Opcodes.INVOKEDYNAMIC, IndexReferenceVisitor.parseLambda(entryPool, name, descriptor, bootstrapMethodArguments));
+		}
+	}
+
+	@Override
+	public void visitEnd() {
+		opcodes = Arrays.copyOf(opcodes, size);
+		targets = Arrays.copyOf(targets, size);
+	}
+
+	private void add(int opcode, Object target) {
+		if (size == opcodes.length) {
+			opcodes = Arrays.copyOf(opcodes, size * 2);
+			targets = Arrays.copyOf(targets, size * 2);
+		}
+		opcodes[size] = opcode;
+		targets[size] = target;
+		size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int getOpcode(int index) {
+		return opcodes[index];
+	}
+
+	/**
+	 * @return the {@link FieldEntry} of a field instruction, the {@link MethodEntry} of a method
+	 * instruction, or the {@link Lambda} of an {@link Opcodes#INVOKEDYNAMIC}
+	 */
+	Object getTarget(int index) {
+		return targets[index];
+	}
+
+	/**
+	 * Indexes every reference without computing receiver types, so each is recorded with
+	 * {@link ReferenceTargetType#none()}.
+	 */
+	void index(JarIndexer indexer, MethodDefEntry entry) {
+		for (int i = 0; i < size; i++) {
+			Object target = targets[i];
+			if (target instanceof FieldEntry) {
+				indexer.indexFieldReference(entry, (FieldEntry) target, ReferenceTargetType.none());
+			} else if (target instanceof MethodEntry) {
+				indexer.indexMethodReference(entry, (MethodEntry) target, ReferenceTargetType.none());
+			} else {
+				indexer.indexLambda(entry, (Lambda) target, ReferenceTargetType.none());
+			}
+		}
+	}
+}
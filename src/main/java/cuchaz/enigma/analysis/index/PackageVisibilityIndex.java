@@ -1,15 +1,18 @@
 package cuchaz.enigma.analysis.index;
 
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.ReferenceTargetType;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.*;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class PackageVisibilityIndex implements JarIndexer {
 	private static boolean requiresSamePackage(AccessFlags entryAcc, EntryReference ref, InheritanceIndex inheritanceIndex) {
@@ -39,8 +42,8 @@ public class PackageVisibilityIndex implements JarIndexer {
 	}
 
 	private final HashMultimap<ClassEntry, ClassEntry> connections = HashMultimap.create();
-	private final List<Set<ClassEntry>> partitions = Lists.newArrayList();
-	private final Map<ClassEntry, Set<ClassEntry>> classPartitions = Maps.newHashMap();
+
+	private Partitions partitions = new Partitions(new EntryTable(), new int[0], 0);
 
 	private void addConnection(ClassEntry classA, ClassEntry classB) {
 		if (classA != classB) {
@@ -49,91 +52,125 @@ public class PackageVisibilityIndex implements JarIndexer {
 		}
 	}
 
-	private void buildPartition(Set<ClassEntry> unassignedClasses, Set<ClassEntry> partition, ClassEntry member) {
-		for (ClassEntry connected : connections.get(member)) {
-			if (unassignedClasses.remove(connected)) {
-				partition.add(connected);
-				buildPartition(unassignedClasses, partition, connected);
-			}
-		}
-	}
+	private void addConnections(EntryIndex entryIndex, ReferenceIndex referenceIndex, InheritanceIndex inheritanceIndex, Predicate<EntryReference<?, ?>> referenceFilter, Predicate<ClassEntry> classFilter) {
+		// connections are found in parallel and only added to the multimap afterwards
+		List<Map.Entry<ClassEntry, ClassEntry>> found = new ArrayList<>();
 
-	private void addConnections(EntryIndex entryIndex, ReferenceIndex referenceIndex, InheritanceIndex inheritanceIndex) {
-		for (FieldEntry entry : entryIndex.getFields()) {
+		found.addAll(entryIndex.getFields().parallelStream().flatMap(entry -> {
 			AccessFlags entryAcc = entryIndex.getFieldAccess(entry);
-			if (!entryAcc.isPublic() && !entryAcc.isPrivate()) {
-				for (EntryReference<FieldEntry, MethodDefEntry> ref : referenceIndex.getReferencesToField(entry)) {
-					if (requiresSamePackage(entryAcc, ref, inheritanceIndex)) {
-						addConnection(ref.entry.getContainingClass(), ref.context.getContainingClass());
-					}
-				}
+			if (entryAcc.isPublic() || entryAcc.isPrivate()) {
+				return Stream.empty();
 			}
-		}
+			return referenceConnections(referenceIndex.getReferencesToField(entry), entryAcc, inheritanceIndex, referenceFilter);
+		}).collect(Collectors.toList()));
 
-		for (MethodEntry entry : entryIndex.getMethods()) {
+		found.addAll(entryIndex.getMethods().parallelStream().flatMap(entry -> {
 			AccessFlags entryAcc = entryIndex.getMethodAccess(entry);
-			if (!entryAcc.isPublic() && !entryAcc.isPrivate()) {
-				for (EntryReference<MethodEntry, MethodDefEntry> ref : referenceIndex.getReferencesToMethod(entry)) {
-					if (requiresSamePackage(entryAcc, ref, inheritanceIndex)) {
-						addConnection(ref.entry.getContainingClass(), ref.context.getContainingClass());
-					}
-				}
+			if (entryAcc.isPublic() || entryAcc.isPrivate()) {
+				return Stream.empty();
 			}
-		}
+			return referenceConnections(referenceIndex.getReferencesToMethod(entry), entryAcc, inheritanceIndex, referenceFilter);
+		}).collect(Collectors.toList()));
+
+		found.addAll(entryIndex.getClasses().parallelStream().flatMap(entry -> {
+			Stream.Builder<Map.Entry<ClassEntry, ClassEntry>> classConnections = Stream.builder();
 
-		for (ClassEntry entry : entryIndex.getClasses()) {
 			AccessFlags entryAcc = entryIndex.getClassAccess(entry);
 			if (!entryAcc.isPublic() && !entryAcc.isPrivate()) {
-				for (EntryReference<ClassEntry, FieldDefEntry> ref : referenceIndex.getFieldTypeReferencesToClass(entry)) {
-					if (requiresSamePackage(entryAcc, ref, inheritanceIndex)) {
-						addConnection(ref.entry.getContainingClass(), ref.context.getContainingClass());
-					}
-				}
-
-				for (EntryReference<ClassEntry, MethodDefEntry> ref : referenceIndex.getMethodTypeReferencesToClass(entry)) {
-					if (requiresSamePackage(entryAcc, ref, inheritanceIndex)) {
-						addConnection(ref.entry.getContainingClass(), ref.context.getContainingClass());
-					}
-				}
+				referenceConnections(referenceIndex.getFieldTypeReferencesToClass(entry), entryAcc, inheritanceIndex, referenceFilter).forEach(classConnections);
+				referenceConnections(referenceIndex.getMethodTypeReferencesToClass(entry), entryAcc, inheritanceIndex, referenceFilter).forEach(classConnections);
 			}
 
 			for (ClassEntry parent : inheritanceIndex.getParents(entry)) {
 				AccessFlags parentAcc = entryIndex.getClassAccess(parent);
-				if (parentAcc != null && !parentAcc.isPublic() && !parentAcc.isPrivate()) {
-					addConnection(entry, parent);
+				if (parentAcc != null && !parentAcc.isPublic() && !parentAcc.isPrivate() && (classFilter.test(entry) || classFilter.test(parent))) {
+					classConnections.add(Maps.immutableEntry(entry, parent));
 				}
 			}
 
 			ClassEntry outerClass = entry.getOuterClass();
-			if (outerClass != null) {
-				addConnection(entry, outerClass);
+			if (outerClass != null && (classFilter.test(entry) || classFilter.test(outerClass))) {
+				classConnections.add(Maps.immutableEntry(entry, outerClass));
 			}
+
+			return classConnections.build();
+		}).collect(Collectors.toList()));
+
+		for (Map.Entry<ClassEntry, ClassEntry> connection : found) {
+			addConnection(connection.getKey(), connection.getValue());
 		}
 	}
 
-	private void addPartitions(EntryIndex entryIndex) {
-		Set<ClassEntry> unassignedClasses = Sets.newHashSet(entryIndex.getClasses());
-		while (!unassignedClasses.isEmpty()) {
-			Iterator<ClassEntry> iterator = unassignedClasses.iterator();
-			ClassEntry initialEntry = iterator.next();
-			iterator.remove();
+	private static Stream<Map.Entry<ClassEntry, ClassEntry>> referenceConnections(Collection<? extends EntryReference<?, ?>> references, AccessFlags entryAcc, InheritanceIndex inheritanceIndex, Predicate<EntryReference<?, ?>> referenceFilter) {
+		return references.stream()
+				.filter(ref -> referenceFilter.test(ref) && requiresSamePackage(entryAcc, ref, inheritanceIndex))
+				.map(ref -> Maps.immutableEntry(ref.entry.getContainingClass(), ref.context.getContainingClass()));
+	}
+
+	private void buildPartitions(Collection<ClassEntry> classEntries) {
+		EntryTable classes = new EntryTable();
+		classEntries.forEach(classes::add);
+		classes.trim();
+
+		// classes outside of the given ones are not partitioned, and do not connect anything either
+		UnionFind unionFind = new UnionFind(classes.size());
+		connections.forEach((classA, classB) -> {
+			int idA = classes.getId(classA);
+			int idB = classes.getId(classB);
+			if (idA >= 0 && idB >= 0) {
+				unionFind.union(idA, idB);
+			}
+		});
 
-			HashSet<ClassEntry> partition = Sets.newHashSet();
-			partition.add(initialEntry);
-			buildPartition(unassignedClasses, partition, initialEntry);
-			partitions.add(partition);
-			for (ClassEntry entry : partition) {
-				classPartitions.put(entry, partition);
+		int[] rootPartitions = new int[classes.size()];
+		Arrays.fill(rootPartitions, -1);
+		int[] classPartitions = new int[classes.size()];
+		int partitionCount = 0;
+		for (int id = 0; id < classes.size(); id++) {
+			int root = unionFind.find(id);
+			if (rootPartitions[root] < 0) {
+				rootPartitions[root] = partitionCount++;
 			}
+			classPartitions[id] = rootPartitions[root];
 		}
+
+		partitions = new Partitions(classes, classPartitions, partitionCount);
 	}
 
 	public Collection<Set<ClassEntry>> getPartitions() {
-		return partitions;
+		return partitions.getPartitions();
 	}
 
+	@Nullable
 	public Set<ClassEntry> getPartition(ClassEntry classEntry) {
-		return classPartitions.get(classEntry);
+		return partitions.getPartition(classEntry);
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		out.writeMultimap(connections, out::writeEntry, out::writeEntry);
+		out.writeCollection(getPartitions(), partition -> out.writeCollection(partition, out::writeEntry));
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		in.readMultimap(connections, in::readEntry, in::readEntry);
+
+		List<List<ClassEntry>> partitionList = new ArrayList<>();
+		in.readCollection(() -> {
+			List<ClassEntry> partition = new ArrayList<>();
+			in.<ClassEntry>readCollection(in::readEntry, partition::add);
+			return partition;
+		}, partitionList::add);
+
+		EntryTable classes = new EntryTable();
+		int[] classPartitions = new int[partitionList.stream().mapToInt(List::size).sum()];
+		for (int partition = 0; partition < partitionList.size(); partition++) {
+			for (ClassEntry classEntry : partitionList.get(partition)) {
+				classPartitions[classes.add(classEntry)] = partition;
+			}
+		}
+		classes.trim();
+
+		partitions = new Partitions(classes, classPartitions, partitionList.size());
 	}
 
 	@Override
@@ -141,7 +178,124 @@ public class PackageVisibilityIndex implements JarIndexer {
 		EntryIndex entryIndex = index.getEntryIndex();
 		ReferenceIndex referenceIndex = index.getReferenceIndex();
 		InheritanceIndex inheritanceIndex = index.getInheritanceIndex();
-		addConnections(entryIndex, referenceIndex, inheritanceIndex);
-		addPartitions(entryIndex);
+		addConnections(entryIndex, referenceIndex, inheritanceIndex, ref -> true, classEntry -> true);
+		buildPartitions(entryIndex.getClasses());
+	}
+
+	/**
+	 * Recomputes the connections of the given classes, whose references, access or hierarchy may
+	 * have changed, and partitions the classes again.
+	 */
+	void update(JarIndex index, Set<ClassEntry> classes) {
+		for (ClassEntry classEntry : classes) {
+			for (ClassEntry connected : connections.removeAll(classEntry)) {
+				connections.remove(connected, classEntry);
+			}
+		}
+
+		addConnections(index.getEntryIndex(), index.getReferenceIndex(), index.getInheritanceIndex(), ref -> touches(ref, classes), classes::contains);
+
+		// finding the connections is what costs, joining them up again is linear
+		buildPartitions(index.getEntryIndex().getClasses());
+	}
+
+	/**
+	 * The partitioned classes by id, with the members of partition {@code i} stored as the slice
+	 * {@code [partitionStarts[i], partitionStarts[i + 1])} of {@code partitionMembers}.
+	 */
+	private static final class Partitions {
+		private final EntryTable classes;
+		private final int[] classPartitions;
+		private final int[] partitionMembers;
+		private final int[] partitionStarts;
+
+		Partitions(EntryTable classes, int[] classPartitions, int partitionCount) {
+			this.classes = classes;
+			this.classPartitions = classPartitions;
+
+			partitionStarts = new int[partitionCount + 1];
+			for (int partition : classPartitions) {
+				partitionStarts[partition + 1]++;
+			}
+			for (int i = 0; i < partitionCount; i++) {
+				partitionStarts[i + 1] += partitionStarts[i];
+			}
+
+			partitionMembers = new int[classPartitions.length];
+			int[] next = Arrays.copyOf(partitionStarts, partitionCount);
+			for (int id = 0; id < classPartitions.length; id++) {
+				partitionMembers[next[classPartitions[id]]++] = id;
+			}
+		}
+
+		Collection<Set<ClassEntry>> getPartitions() {
+			List<Set<ClassEntry>> partitions = new ArrayList<>(partitionStarts.length - 1);
+			for (int partition = 0; partition < partitionStarts.length - 1; partition++) {
+				partitions.add(new Partition(partition));
+			}
+			return partitions;
+		}
+
+		@Nullable
+		Set<ClassEntry> getPartition(ClassEntry classEntry) {
+			int id = classes.getId(classEntry);
+			return id >= 0 ? new Partition(classPartitions[id]) : null;
+		}
+
+		/**
+		 * A read-only view of the members of a partition.
+		 */
+		private final class Partition extends AbstractSet<ClassEntry> {
+			private final int partition;
+
+			private Partition(int partition) {
+				this.partition = partition;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof ClassEntry)) {
+					return false;
+				}
+
+				int id = classes.getId((ClassEntry) o);
+				return id >= 0 && classPartitions[id] == partition;
+			}
+
+			@Override
+			public Iterator<ClassEntry> iterator() {
+				int start = partitionStarts[partition];
+				int end = partitionStarts[partition + 1];
+				return new Iterator<ClassEntry>() {
+					private int next = start;
+
+					@Override
+					public boolean hasNext() {
+						return next < end;
+					}
+
+					@Override
+					public ClassEntry next() {
+						if (next >= end) {
+							throw new NoSuchElementException();
+						}
+						return classes.get(partitionMembers[next++]);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return partitionStarts[partition + 1] - partitionStarts[partition];
+			}
+		}
+	}
+
+	private static boolean touches(EntryReference<?, ?> ref, Set<ClassEntry> classes) {
+		if (classes.contains(ref.entry.getContainingClass()) || classes.contains(ref.context.getContainingClass())) {
+			return true;
+		}
+
+		return ref.targetType.getKind() == ReferenceTargetType.Kind.CLASS_TYPE && classes.contains(((ReferenceTargetType.ClassType) ref.targetType).getEntry());
 	}
 }
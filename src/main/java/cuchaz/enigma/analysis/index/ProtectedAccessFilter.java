@@ -0,0 +1,116 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.translation.representation.entry.ParentedEntry;
+import org.objectweb.asm.Opcodes;
+
+import java.util.Collection;
+
+/**
+ * Picks out the methods that need the dataflow analysis under {@link ReferenceIndexingMode#FAST}.
+ * Target types only matter to {@link PackageVisibilityIndex} when a class accesses a protected
+ * member it inherits, so any method that cannot reach such a member is scanned linearly instead.
+ */
+final class ProtectedAccessFilter {
+	private final InheritanceIndex inheritanceIndex;
+
+	// name + descriptor of each protected member, to the classes declaring it
+	private final Multimap<String, ClassEntry> protectedMembers = HashMultimap.create();
+
+	ProtectedAccessFilter(EntryIndex entryIndex, InheritanceIndex inheritanceIndex) {
+		this.inheritanceIndex = inheritanceIndex;
+
+		for (MethodEntry method : entryIndex.getMethods()) {
+			AccessFlags access = entryIndex.getMethodAccess(method);
+			if (access != null && access.isProtected()) {
+				protectedMembers.put(method.getName() + method.getDesc(), method.getParent());
+			}
+		}
+
+		for (FieldEntry field : entryIndex.getFields()) {
+			AccessFlags access = entryIndex.getFieldAccess(field);
+			if (access != null && access.isProtected()) {
+				protectedMembers.put(field.getName() + field.getDesc(), field.getParent());
+			}
+		}
+	}
+
+	boolean needsTargetTypes(ClassEntry contextClass, MethodReferences references) {
+		if (protectedMembers.isEmpty()) {
+			return false;
+		}
+
+		Collection<ClassEntry> contextAncestors = null;
+
+		for (int i = 0; i < references.size(); i++) {
+			ParentedEntry<?> target;
+
+			switch (references.getOpcode(i)) {
+				case Opcodes.GETFIELD:
+				case Opcodes.INVOKEVIRTUAL:
+				case Opcodes.INVOKESPECIAL:
+				case Opcodes.INVOKEINTERFACE:
+					target = (ParentedEntry<?>) references.getTarget(i);
+					break;
+				case Opcodes.INVOKEDYNAMIC:
+					target = ((Lambda) references.getTarget(i)).getImplMethod();
+					break;
+				default:
+					continue;
+			}
+
+			ClassEntry owner = target.getContainingClass();
+			String member = target.getName() + getDesc(target);
+
+			Collection<ClassEntry> declaringClasses = protectedMembers.get(member);
+			if (declaringClasses.isEmpty()) {
+				continue;
+			}
+
+			if (contextAncestors == null) {
+				contextAncestors = inheritanceIndex.getAncestors(contextClass);
+			}
+
+			if (reachesInheritedMember(contextAncestors, owner, declaringClasses)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static String getDesc(ParentedEntry<?> entry) {
+		return entry instanceof FieldEntry ? ((FieldEntry) entry).getDesc().toString() : ((MethodEntry) entry).getDesc().toString();
+	}
+
+	private boolean reachesInheritedMember(Collection<ClassEntry> contextAncestors, ClassEntry owner, Collection<ClassEntry> declaringClasses) {
+		ClassEntry ownerEntry = owner.getFullName().startsWith("[") ? null : owner;
+		Collection<ClassEntry> ownerAncestors = null;
+
+		for (ClassEntry declaringClass : declaringClasses) {
+			if (!contextAncestors.contains(declaringClass)) {
+				continue;
+			}
+
+			if (ownerEntry == null || ownerEntry.equals(declaringClass)) {
+				return true;
+			}
+
+			if (ownerAncestors == null) {
+				ownerAncestors = inheritanceIndex.getAncestors(ownerEntry);
+			}
+
+			if (ownerAncestors.contains(declaringClass)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,242 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.entry.*;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The references of a processed {@link ReferenceIndex}, packed into primitive arrays.
+ *
+ * <p>Every referenced entry and every method or field that references something gets a dense
+ * integer id. Each relation then stores its edges as compressed sparse rows: the edges of the
+ * entry with id {@code i} are the slice {@code [rows[i], rows[i + 1])} of the relation's edge
+ * arrays. The {@link EntryReference} objects handed out are views created on demand.
+ */
+final class ReferenceGraph {
+	private static final int TARGET_NONE = -1;
+	private static final int TARGET_UNINITIALIZED = -2;
+
+	// the entries being referenced, and the receiver types of references
+	private final EntryTable targets = new EntryTable();
+	// the methods and fields the references are made from
+	private final EntryTable contexts = new EntryTable();
+
+	final Calls methodReferences;
+	final References<MethodEntry, MethodDefEntry> referencesToMethods;
+	final References<ClassEntry, MethodDefEntry> referencesToClasses;
+	final References<FieldEntry, MethodDefEntry> referencesToFields;
+	final References<ClassEntry, FieldDefEntry> fieldTypeReferences;
+	final References<ClassEntry, MethodDefEntry> methodTypeReferences;
+
+	ReferenceGraph(
+			Multimap<MethodEntry, MethodEntry> methodReferences,
+			Multimap<MethodEntry, EntryReference<MethodEntry, MethodDefEntry>> referencesToMethods,
+			Multimap<ClassEntry, EntryReference<ClassEntry, MethodDefEntry>> referencesToClasses,
+			Multimap<FieldEntry, EntryReference<FieldEntry, MethodDefEntry>> referencesToFields,
+			Multimap<ClassEntry, EntryReference<ClassEntry, FieldDefEntry>> fieldTypeReferences,
+			Multimap<ClassEntry, EntryReference<ClassEntry, MethodDefEntry>> methodTypeReferences
+	) {
+		// everything is numbered before any relation is packed, so that the rows of every relation
+		// can be indexed by id directly. Contexts of references come before callers so that the
+		// instances kept for them are the definitions.
+		number(referencesToMethods);
+		number(referencesToClasses);
+		number(referencesToFields);
+		number(fieldTypeReferences);
+		number(methodTypeReferences);
+		methodReferences.forEach((caller, callee) -> {
+			contexts.add(caller);
+			targets.add(callee);
+		});
+		targets.trim();
+		contexts.trim();
+
+		this.methodReferences = new Calls(methodReferences);
+		this.referencesToMethods = new References<>(referencesToMethods);
+		this.referencesToClasses = new References<>(referencesToClasses);
+		this.referencesToFields = new References<>(referencesToFields);
+		this.fieldTypeReferences = new References<>(fieldTypeReferences);
+		this.methodTypeReferences = new References<>(methodTypeReferences);
+	}
+
+	private <E extends Entry<?>, C extends Entry<?>> void number(Multimap<E, EntryReference<E, C>> references) {
+		references.forEach((entry, reference) -> {
+			targets.add(entry);
+			if (reference.context != null) {
+				contexts.add(reference.context);
+			}
+			if (reference.targetType.getKind() == ReferenceTargetType.Kind.CLASS_TYPE) {
+				targets.add(((ReferenceTargetType.ClassType) reference.targetType).getEntry());
+			}
+		});
+	}
+
+	private static int[] countRows(int size, Map<? extends Entry<?>, ? extends Collection<?>> rows, EntryTable table) {
+		int[] starts = new int[size + 1];
+		rows.forEach((entry, values) -> starts[table.getId(entry) + 1] = values.size());
+		for (int i = 0; i < size; i++) {
+			starts[i + 1] += starts[i];
+		}
+		return starts;
+	}
+
+	private int encodeTargetType(ReferenceTargetType targetType) {
+		switch (targetType.getKind()) {
+			case UNINITIALIZED:
+				return TARGET_UNINITIALIZED;
+			case CLASS_TYPE:
+				return targets.getId(((ReferenceTargetType.ClassType) targetType).getEntry());
+			default:
+				return TARGET_NONE;
+		}
+	}
+
+	private ReferenceTargetType decodeTargetType(int targetType) {
+		switch (targetType) {
+			case TARGET_NONE:
+				return ReferenceTargetType.none();
+			case TARGET_UNINITIALIZED:
+				return ReferenceTargetType.uninitialized();
+			default:
+				return ReferenceTargetType.classType(targets.get(targetType));
+		}
+	}
+
+	/**
+	 * The methods each method calls, by the id of the calling method.
+	 */
+	final class Calls {
+		private final int[] rows;
+		private final int[] callees;
+
+		private Calls(Multimap<MethodEntry, MethodEntry> methodReferences) {
+			rows = countRows(contexts.size(), methodReferences.asMap(), contexts);
+			callees = new int[methodReferences.size()];
+
+			methodReferences.asMap().forEach((caller, calleeEntries) -> {
+				int edge = rows[contexts.getId(caller)];
+				for (MethodEntry callee : calleeEntries) {
+					callees[edge++] = targets.getId(callee);
+				}
+			});
+		}
+
+		Collection<MethodEntry> get(MethodEntry caller) {
+			int id = contexts.getId(caller);
+			if (id < 0) {
+				return Collections.emptyList();
+			}
+
+			return row(id);
+		}
+
+		private List<MethodEntry> row(int id) {
+			int start = rows[id];
+			int size = rows[id + 1] - start;
+			return new AbstractList<MethodEntry>() {
+				@Override
+				public MethodEntry get(int index) {
+					checkIndex(index, size);
+					return targets.get(callees[start + index]);
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		Map<MethodEntry, Collection<MethodEntry>> asMap() {
+			Map<MethodEntry, Collection<MethodEntry>> map = new LinkedHashMap<>();
+			for (int id = 0; id < contexts.size(); id++) {
+				if (rows[id + 1] > rows[id]) {
+					map.put(contexts.get(id), row(id));
+				}
+			}
+			return map;
+		}
+	}
+
+	/**
+	 * The references to each entry, by the id of the referenced entry.
+	 */
+	final class References<E extends Entry<?>, C extends Entry<?>> {
+		private final int[] rows;
+		private final int[] contextIds;
+		private final int[] targetTypes;
+		private final BitSet unnamed = new BitSet();
+
+		private References(Multimap<E, EntryReference<E, C>> references) {
+			rows = countRows(targets.size(), references.asMap(), targets);
+			contextIds = new int[references.size()];
+			targetTypes = new int[references.size()];
+
+			references.asMap().forEach((entry, entryReferences) -> {
+				int edge = rows[targets.getId(entry)];
+				for (EntryReference<E, C> reference : entryReferences) {
+					contextIds[edge] = reference.context != null ? contexts.getId(reference.context) : -1;
+					targetTypes[edge] = encodeTargetType(reference.targetType);
+					if (!reference.isNamed()) {
+						unnamed.set(edge);
+					}
+					edge++;
+				}
+			});
+		}
+
+		Collection<EntryReference<E, C>> get(E entry) {
+			int id = targets.getId(entry);
+			if (id < 0) {
+				return Collections.emptyList();
+			}
+
+			return row(id);
+		}
+
+		private List<EntryReference<E, C>> row(int id) {
+			E entry = targets.get(id);
+			int start = rows[id];
+			int size = rows[id + 1] - start;
+			return new AbstractList<EntryReference<E, C>>() {
+				@Override
+				public EntryReference<E, C> get(int index) {
+					checkIndex(index, size);
+					int edge = start + index;
+					C context = contextIds[edge] >= 0 ? contexts.get(contextIds[edge]) : null;
+					return new EntryReference<>(entry, unnamed.get(edge) ? null : entry.getName(), context, decodeTargetType(targetTypes[edge]));
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		Map<E, Collection<EntryReference<E, C>>> asMap() {
+			Map<E, Collection<EntryReference<E, C>>> map = new LinkedHashMap<>();
+			for (int id = 0; id < targets.size(); id++) {
+				if (rows[id + 1] > rows[id]) {
+					map.put(targets.get(id), row(id));
+				}
+			}
+			return map;
+		}
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package cuchaz.enigma.analysis.index;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.ReferenceTargetType;
@@ -10,9 +11,27 @@ import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.*;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
+/**
+ * Indexes the references between the entries of a jar: calls, field accesses, constructions and
+ * the types mentioned by declarations.
+ *
+ * <p>Until the index is processed, the accessors return the {@link Set} views of the references
+ * collected so far. Processing packs the references into a {@link ReferenceGraph}, after which the
+ * accessors return read-only {@link List} views over it instead. These still hold no duplicates,
+ * but {@code contains} scans the list, and every {@code get} builds a new {@link EntryReference}
+ * that is equal to, but not the same as, the one built before. Callers that look at a collection
+ * more than once should copy it.
+ */
 public class ReferenceIndex implements JarIndexer {
 	private Multimap<MethodEntry, MethodEntry> methodReferences = HashMultimap.create();
 
@@ -22,6 +41,11 @@ public class ReferenceIndex implements JarIndexer {
 	private Multimap<ClassEntry, EntryReference<ClassEntry, FieldDefEntry>> fieldTypeReferences = HashMultimap.create();
 	private Multimap<ClassEntry, EntryReference<ClassEntry, MethodDefEntry>> methodTypeReferences = HashMultimap.create();
 
+	// once processed, the references move into this compact form, and the multimaps stay empty
+	// unless references are added or removed again
+	@Nullable
+	private ReferenceGraph graph;
+
 	@Override
 	public void indexMethod(MethodDefEntry methodEntry) {
 	    indexMethodDescriptor(methodEntry, methodEntry.getDesc());
@@ -86,62 +110,230 @@ public class ReferenceIndex implements JarIndexer {
 		indexMethodDescriptor(callerEntry, lambda.getInstantiatedMethodType());
 	}
 
+	@Override
+	public ReferenceIndex createShard() {
+		return new ReferenceIndex();
+	}
+
+	@Override
+	public void mergeShard(JarIndexer shard) {
+		ReferenceIndex referenceShard = (ReferenceIndex) shard;
+		expand();
+		referenceShard.expand();
+		methodReferences.putAll(referenceShard.methodReferences);
+		referencesToMethods.putAll(referenceShard.referencesToMethods);
+		referencesToClasses.putAll(referenceShard.referencesToClasses);
+		referencesToFields.putAll(referenceShard.referencesToFields);
+		fieldTypeReferences.putAll(referenceShard.fieldTypeReferences);
+		methodTypeReferences.putAll(referenceShard.methodTypeReferences);
+	}
+
+	/**
+	 * Collects the classes containing code that references a member of, or constructs, one of the
+	 * given classes.
+	 */
+	Set<ClassEntry> getClassesReferencing(Set<ClassEntry> classEntries) {
+		// only needed when reindexing, which goes on to change the references anyway
+		expand();
+
+		Set<ClassEntry> referencing = new HashSet<>();
+		addReferencingClasses(referencing, classEntries, referencesToMethods);
+		addReferencingClasses(referencing, classEntries, referencesToClasses);
+		addReferencingClasses(referencing, classEntries, referencesToFields);
+		return referencing;
+	}
+
+	private static <E extends Entry<?>, C extends Entry<?>> void addReferencingClasses(Set<ClassEntry> referencing, Set<ClassEntry> classEntries, Multimap<E, EntryReference<E, C>> references) {
+		for (Map.Entry<E, Collection<EntryReference<E, C>>> entry : references.asMap().entrySet()) {
+			if (classEntries.contains(entry.getKey().getContainingClass())) {
+				for (EntryReference<E, C> reference : entry.getValue()) {
+					referencing.add(reference.context.getContainingClass());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops every reference made from code or declarations inside the given classes.
+	 */
+	void removeContexts(Set<ClassEntry> classEntries) {
+		expand();
+		methodReferences.keySet().removeIf(caller -> classEntries.contains(caller.getParent()));
+		removeContexts(classEntries, referencesToMethods);
+		removeContexts(classEntries, referencesToClasses);
+		removeContexts(classEntries, referencesToFields);
+		removeContexts(classEntries, fieldTypeReferences);
+		removeContexts(classEntries, methodTypeReferences);
+	}
+
+	private static <E extends Entry<?>, C extends Entry<?>> void removeContexts(Set<ClassEntry> classEntries, Multimap<E, EntryReference<E, C>> references) {
+		references.entries().removeIf(entry -> classEntries.contains(entry.getValue().context.getContainingClass()));
+	}
+
+	void writeSnapshot(SnapshotOutput out) throws IOException {
+		if (graph != null) {
+			out.writeMap(graph.methodReferences.asMap(), out::writeEntry, callees -> out.writeCollection(callees, out::writeEntry));
+			writeReferences(out, graph.referencesToMethods.asMap());
+			writeReferences(out, graph.referencesToClasses.asMap());
+			writeReferences(out, graph.referencesToFields.asMap());
+			writeReferences(out, graph.fieldTypeReferences.asMap());
+			writeReferences(out, graph.methodTypeReferences.asMap());
+			return;
+		}
+
+		out.writeMultimap(methodReferences, out::writeEntry, out::writeEntry);
+		writeReferences(out, referencesToMethods.asMap());
+		writeReferences(out, referencesToClasses.asMap());
+		writeReferences(out, referencesToFields.asMap());
+		writeReferences(out, fieldTypeReferences.asMap());
+		writeReferences(out, methodTypeReferences.asMap());
+	}
+
+	private static <E extends Entry<?>, C extends Entry<?>> void writeReferences(SnapshotOutput out, Map<E, Collection<EntryReference<E, C>>> references) throws IOException {
+		out.writeMap(references, out::writeEntry, entryReferences -> out.writeCollection(entryReferences, out::writeReference));
+	}
+
+	void readSnapshot(SnapshotInput in) {
+		// snapshots are taken after processing, so the references are already resolved
+		in.readMultimap(methodReferences, in::readEntry, in::readEntry);
+		in.readMultimap(referencesToMethods, in::readEntry, in::readReference);
+		in.readMultimap(referencesToClasses, in::readEntry, in::readReference);
+		in.readMultimap(referencesToFields, in::readEntry, in::readReference);
+		in.readMultimap(fieldTypeReferences, in::readEntry, in::readReference);
+		in.readMultimap(methodTypeReferences, in::readEntry, in::readReference);
+		compact();
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
+		expand();
 		methodReferences = remapReferences(index, methodReferences);
 		referencesToMethods = remapReferencesTo(index, referencesToMethods);
 		referencesToClasses = remapReferencesTo(index, referencesToClasses);
 		referencesToFields = remapReferencesTo(index, referencesToFields);
 		fieldTypeReferences = remapReferencesTo(index, fieldTypeReferences);
 		methodTypeReferences = remapReferencesTo(index, methodTypeReferences);
+		compact();
 	}
 
-	private <K extends Entry<?>, V extends Entry<?>> Multimap<K, V> remapReferences(JarIndex index, Multimap<K, V> multimap) {
-		Multimap<K, V> resolved = HashMultimap.create(multimap.keySet().size(), multimap.size() / multimap.keySet().size());
-		for (Map.Entry<K, V> entry : multimap.entries()) {
-			resolved.put(remap(index, entry.getKey()), remap(index, entry.getValue()));
+	/**
+	 * Packs the references into their compact form. Lookups keep working the same way, but
+	 * adding or removing references afterwards has to unpack them again first.
+	 */
+	void compact() {
+		if (graph != null) {
+			return;
 		}
-		return resolved;
+
+		graph = new ReferenceGraph(methodReferences, referencesToMethods, referencesToClasses, referencesToFields, fieldTypeReferences, methodTypeReferences);
+		methodReferences = HashMultimap.create();
+		referencesToMethods = HashMultimap.create();
+		referencesToClasses = HashMultimap.create();
+		referencesToFields = HashMultimap.create();
+		fieldTypeReferences = HashMultimap.create();
+		methodTypeReferences = HashMultimap.create();
+	}
+
+	private void expand() {
+		if (graph == null) {
+			return;
+		}
+
+		graph.methodReferences.asMap().forEach(methodReferences::putAll);
+		graph.referencesToMethods.asMap().forEach(referencesToMethods::putAll);
+		graph.referencesToClasses.asMap().forEach(referencesToClasses::putAll);
+		graph.referencesToFields.asMap().forEach(referencesToFields::putAll);
+		graph.fieldTypeReferences.asMap().forEach(fieldTypeReferences::putAll);
+		graph.methodTypeReferences.asMap().forEach(methodTypeReferences::putAll);
+		graph = null;
+	}
+
+	private <K extends Entry<?>, V extends Entry<?>> Multimap<K, V> remapReferences(JarIndex index, Multimap<K, V> multimap) {
+		return remapParallel(multimap, key -> remap(index, key), value -> remap(index, value));
 	}
 
 	private <E extends Entry<?>, C extends Entry<?>> Multimap<E, EntryReference<E, C>> remapReferencesTo(JarIndex index, Multimap<E, EntryReference<E, C>> multimap) {
+		return remapParallel(multimap, key -> remap(index, key), value -> remap(index, value));
+	}
+
+	private static <K, V> Multimap<K, V> remapParallel(Multimap<K, V> multimap, UnaryOperator<K> keyRemapper, UnaryOperator<V> valueRemapper) {
+		// every key is resolved along with its values on its own thread, only the merge is sequential, since
+		// keys from different classes can resolve to the same declaration
+		List<Map.Entry<K, List<V>>> remapped = multimap.asMap().entrySet().parallelStream()
+				.map(entry -> Maps.immutableEntry(keyRemapper.apply(entry.getKey()), entry.getValue().stream().map(valueRemapper).collect(Collectors.toList())))
+				.collect(Collectors.toList());
+
 		final int keySetSize = multimap.keySet().size();
-		Multimap<E, EntryReference<E, C>> resolved = HashMultimap.create(keySetSize, keySetSize == 0 ? 0 : multimap.size() / keySetSize);
-		for (Map.Entry<E, EntryReference<E, C>> entry : multimap.entries()) {
-			resolved.put(remap(index, entry.getKey()), remap(index, entry.getValue()));
+		Multimap<K, V> resolved = HashMultimap.create(keySetSize, keySetSize == 0 ? 0 : multimap.size() / keySetSize);
+		for (Map.Entry<K, List<V>> entry : remapped) {
+			resolved.putAll(entry.getKey(), entry.getValue());
 		}
 		return resolved;
 	}
 
 	private <E extends Entry<?>> E remap(JarIndex index, E entry) {
-		return index.getEntryResolver().resolveFirstEntry(entry, ResolutionStrategy.RESOLVE_CLOSEST);
+		// entries declared in the jar resolve to themselves
+		E resolved = entry == null || index.getEntryIndex().hasEntry(entry) ? entry : index.getEntryResolver().resolveFirstEntry(entry, ResolutionStrategy.RESOLVE_CLOSEST);
+
+		// resolving to a parent class builds a new entry, which would otherwise be duplicated for every reference
+		return index.getEntryPool().intern(resolved);
 	}
 
 	private <E extends Entry<?>, C extends Entry<?>> EntryReference<E, C> remap(JarIndex index, EntryReference<E, C> reference) {
-		return index.getEntryResolver().resolveFirstReference(reference, ResolutionStrategy.RESOLVE_CLOSEST);
+		return new EntryReference<>(remap(index, reference.entry), remap(index, reference.context), reference);
 	}
 
+	/**
+	 * @return the methods the given method calls, without duplicates
+	 */
 	public Collection<MethodEntry> getMethodsReferencedBy(MethodEntry entry) {
-		return methodReferences.get(entry);
+		return graph != null ? graph.methodReferences.get(entry) : methodReferences.get(entry);
 	}
 
+	/**
+	 * @return the references to the given field, one reference per context
+	 */
 	public Collection<EntryReference<FieldEntry, MethodDefEntry>> getReferencesToField(FieldEntry entry) {
-		return referencesToFields.get(entry);
+		return graph != null ? graph.referencesToFields.get(entry) : referencesToFields.get(entry);
 	}
 
+	/**
+	 * @return the constructor calls of the given class, one reference per context
+	 */
 	public Collection<EntryReference<ClassEntry, MethodDefEntry>> getReferencesToClass(ClassEntry entry) {
-		return referencesToClasses.get(entry);
+		return graph != null ? graph.referencesToClasses.get(entry) : referencesToClasses.get(entry);
 	}
 
+	/**
+	 * @return the references to the given method, one reference per context
+	 */
 	public Collection<EntryReference<MethodEntry, MethodDefEntry>> getReferencesToMethod(MethodEntry entry) {
-		return referencesToMethods.get(entry);
+		return graph != null ? graph.referencesToMethods.get(entry) : referencesToMethods.get(entry);
 	}
 
+	/**
+	 * @return the fields declared with the given class as their type, one reference per context
+	 */
 	public Collection<EntryReference<ClassEntry, FieldDefEntry>> getFieldTypeReferencesToClass(ClassEntry entry) {
-		return fieldTypeReferences.get(entry);
+		return graph != null ? graph.fieldTypeReferences.get(entry) : fieldTypeReferences.get(entry);
 	}
 
+	/**
+	 * @return the methods mentioning the given class in their descriptor, one reference per context
+	 */
 	public Collection<EntryReference<ClassEntry, MethodDefEntry>> getMethodTypeReferencesToClass(ClassEntry entry) {
-		return methodTypeReferences.get(entry);
+		return graph != null ? graph.methodTypeReferences.get(entry) : methodTypeReferences.get(entry);
+	}
+
+	public ReferenceQuery<FieldEntry, MethodDefEntry> queryReferencesToField(FieldEntry entry) {
+		return ReferenceQuery.of(getReferencesToField(entry));
+	}
+
+	public ReferenceQuery<ClassEntry, MethodDefEntry> queryReferencesToClass(ClassEntry entry) {
+		return ReferenceQuery.of(getReferencesToClass(entry));
+	}
+
+	public ReferenceQuery<MethodEntry, MethodDefEntry> queryReferencesToMethod(MethodEntry entry) {
+		return ReferenceQuery.of(getReferencesToMethod(entry));
 	}
 }
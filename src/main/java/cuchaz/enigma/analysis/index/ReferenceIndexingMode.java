@@ -0,0 +1,19 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.gson.annotations.SerializedName;
+
+public enum ReferenceIndexingMode {
+	/**
+	 * Runs the dataflow analysis over every method, so that every reference carries the type of
+	 * the object it was made on.
+	 */
+	@SerializedName("full")
+	FULL,
+	/**
+	 * Scans most methods linearly and records their references without a target type. Only
+	 * methods that may access an inherited protected member, the one case where package
+	 * visibility depends on the target type, still get the dataflow analysis.
+	 */
+	@SerializedName("fast")
+	FAST
+}
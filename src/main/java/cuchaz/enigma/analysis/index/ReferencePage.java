@@ -0,0 +1,35 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the results of a {@link ReferenceQuery}.
+ */
+public final class ReferencePage<E extends Entry<?>, C extends Entry<?>> {
+	private final List<EntryReference<E, C>> references;
+	private final int nextCursor;
+
+	ReferencePage(List<EntryReference<E, C>> references, int nextCursor) {
+		this.references = Collections.unmodifiableList(references);
+		this.nextCursor = nextCursor;
+	}
+
+	public List<EntryReference<E, C>> getReferences() {
+		return references;
+	}
+
+	public boolean hasNext() {
+		return nextCursor >= 0;
+	}
+
+	/**
+	 * @return the cursor to read the next page from, or -1 if this is the last page
+	 */
+	public int getNextCursor() {
+		return nextCursor;
+	}
+}
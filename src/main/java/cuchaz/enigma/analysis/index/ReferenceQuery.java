@@ -0,0 +1,145 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.ImmutableList;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A lazily evaluated view over the references returned by a {@link ReferenceIndex}, which can be
+ * filtered, sorted and read one page at a time without copying every reference up front.
+ *
+ * <p>Queries are immutable: every refinement returns a new query. Only sorting has to look at all
+ * matching references at once, and it does so a single time per query.
+ */
+public final class ReferenceQuery<E extends Entry<?>, C extends Entry<?>> {
+	private final List<Collection<EntryReference<E, C>>> sources;
+	@Nullable
+	private final Predicate<EntryReference<E, C>> filter;
+	@Nullable
+	private final Comparator<? super EntryReference<E, C>> order;
+
+	private List<EntryReference<E, C>> sorted;
+
+	private ReferenceQuery(List<Collection<EntryReference<E, C>>> sources, @Nullable Predicate<EntryReference<E, C>> filter, @Nullable Comparator<? super EntryReference<E, C>> order) {
+		this.sources = sources;
+		this.filter = filter;
+		this.order = order;
+	}
+
+	public static <E extends Entry<?>, C extends Entry<?>> ReferenceQuery<E, C> of(Collection<EntryReference<E, C>> references) {
+		return new ReferenceQuery<>(ImmutableList.of(references), null, null);
+	}
+
+	/**
+	 * Queries the references of several entries as one sequence, in the order given.
+	 */
+	public static <E extends Entry<?>, C extends Entry<?>> ReferenceQuery<E, C> concat(Collection<? extends Collection<EntryReference<E, C>>> references) {
+		return new ReferenceQuery<>(ImmutableList.copyOf(references), null, null);
+	}
+
+	public ReferenceQuery<E, C> filter(Predicate<EntryReference<E, C>> predicate) {
+		Predicate<EntryReference<E, C>> filter = this.filter != null ? this.filter.and(predicate) : predicate;
+		return new ReferenceQuery<>(sources, filter, order);
+	}
+
+	/**
+	 * Keeps the references made from within the given class, including its inner classes.
+	 */
+	public ReferenceQuery<E, C> fromClass(ClassEntry classEntry) {
+		return filter(reference -> reference.context != null && reference.context.getAncestry().contains(classEntry));
+	}
+
+	/**
+	 * Keeps the references made from classes directly in the given package, or in the default
+	 * package if it is null.
+	 */
+	public ReferenceQuery<E, C> fromPackage(@Nullable String packageName) {
+		return filter(reference -> reference.context != null && Objects.equals(reference.context.getContainingClass().getPackageName(), packageName));
+	}
+
+	public ReferenceQuery<E, C> sorted(Comparator<? super EntryReference<E, C>> order) {
+		return new ReferenceQuery<>(sources, filter, order);
+	}
+
+	/**
+	 * Sorts references by the full name of the entry they are made from.
+	 */
+	public ReferenceQuery<E, C> sortedByContext() {
+		return sorted(Comparator.comparing(reference -> reference.context != null ? reference.context.toString() : ""));
+	}
+
+	public Stream<EntryReference<E, C>> stream() {
+		if (order != null) {
+			return getSorted().stream();
+		}
+
+		Stream<EntryReference<E, C>> stream = sources.size() == 1 ? sources.get(0).stream() : sources.stream().flatMap(Collection::stream);
+		return filter != null ? stream.filter(filter) : stream;
+	}
+
+	public int count() {
+		if (filter == null) {
+			int count = 0;
+			for (Collection<EntryReference<E, C>> source : sources) {
+				count += source.size();
+			}
+			return count;
+		}
+
+		return (int) stream().count();
+	}
+
+	/**
+	 * Reads up to {@code size} references, starting at the given cursor. The first page starts at
+	 * cursor 0, and each page tells the cursor of the next one.
+	 */
+	@SuppressWarnings("unchecked")
+	public ReferencePage<E, C> page(int cursor, int size) {
+		if (cursor < 0 || size <= 0) {
+			throw new IllegalArgumentException("Invalid page " + cursor + " of size " + size);
+		}
+
+		List<EntryReference<E, C>> references;
+		if (order == null && filter == null && sources.size() == 1 && sources.get(0) instanceof List) {
+			// the index hands out random access views, so there is no need to walk the skipped references
+			List<EntryReference<E, C>> source = (List<EntryReference<E, C>>) sources.get(0);
+			int from = Math.min(cursor, source.size());
+			references = new ArrayList<>(source.subList(from, Math.min(from + size + 1, source.size())));
+		} else if (order != null) {
+			List<EntryReference<E, C>> sorted = getSorted();
+			int from = Math.min(cursor, sorted.size());
+			references = new ArrayList<>(sorted.subList(from, Math.min(from + size + 1, sorted.size())));
+		} else {
+			references = stream().skip(cursor).limit(size + 1L).collect(Collectors.toCollection(ArrayList::new));
+		}
+
+		// one reference more than asked for is read to tell whether this is the last page
+		boolean hasMore = references.size() > size;
+		if (hasMore) {
+			references.remove(size);
+		}
+		return new ReferencePage<>(references, hasMore ? cursor + size : -1);
+	}
+
+	private synchronized List<EntryReference<E, C>> getSorted() {
+		if (sorted == null) {
+			Stream<EntryReference<E, C>> stream = sources.stream().flatMap(Collection::stream);
+			if (filter != null) {
+				stream = stream.filter(filter);
+			}
+			sorted = stream.sorted(order).collect(ImmutableList.toImmutableList());
+		}
+		return sorted;
+	}
+}
@@ -0,0 +1,194 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.*;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reads index state written by {@link SnapshotOutput} straight out of a buffer, which is usually a
+ * read-only mapping of the snapshot file. Malformed input surfaces as an unchecked exception.
+ */
+final class SnapshotInput {
+	private static final ReferenceTargetType.Kind[] TARGET_KINDS = ReferenceTargetType.Kind.values();
+
+	private final ByteBuffer buffer;
+
+	private final List<String> strings = new ArrayList<>();
+	private final List<Entry<?>> entries = new ArrayList<>();
+
+	SnapshotInput(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	int readInt() {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed integer in index snapshot");
+	}
+
+	long readLong() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed long in index snapshot");
+	}
+
+	boolean readBoolean() {
+		return buffer.get() != 0;
+	}
+
+	byte[] readBytes() {
+		byte[] bytes = new byte[readInt()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	@Nullable
+	String readString() {
+		int id = readInt();
+		if (id == 0) {
+			return null;
+		} else if (id >= 2) {
+			return strings.get(id - 2);
+		}
+
+		char[] chars = new char[readInt()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) readInt();
+		}
+
+		String value = new String(chars);
+		strings.add(value);
+		return value;
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<E extends Entry<?>> E readEntry() {
+		int id = readInt();
+		if (id == 0) {
+			return null;
+		} else if (id >= 2) {
+			return (E) entries.get(id - 2);
+		}
+
+		Entry<?> entry = readEntryBody();
+		entries.add(entry);
+		return (E) entry;
+	}
+
+	private Entry<?> readEntryBody() {
+		int tag = readInt();
+		switch (tag) {
+			case SnapshotOutput.TAG_CLASS:
+				return new ClassEntry(readString());
+			case SnapshotOutput.TAG_CLASS_DEF: {
+				String name = readString();
+				Signature signature = Signature.createSignature(readString());
+				AccessFlags access = readAccess();
+				ClassEntry superClass = readEntry();
+				ClassEntry[] interfaces = new ClassEntry[readInt()];
+				for (int i = 0; i < interfaces.length; i++) {
+					interfaces[i] = readEntry();
+				}
+				return new ClassDefEntry(name, signature, access, superClass, interfaces);
+			}
+			case SnapshotOutput.TAG_METHOD: {
+				ClassEntry parent = readEntry();
+				return new MethodEntry(parent, readString(), MethodDescriptor.parse(readString()));
+			}
+			case SnapshotOutput.TAG_METHOD_DEF: {
+				ClassEntry parent = readEntry();
+				String name = readString();
+				MethodDescriptor descriptor = MethodDescriptor.parse(readString());
+				Signature signature = Signature.createSignature(readString());
+				return new MethodDefEntry(parent, name, descriptor, signature, readAccess());
+			}
+			case SnapshotOutput.TAG_FIELD: {
+				ClassEntry parent = readEntry();
+				return new FieldEntry(parent, readString(), TypeDescriptor.parse(readString()));
+			}
+			case SnapshotOutput.TAG_FIELD_DEF: {
+				ClassEntry parent = readEntry();
+				String name = readString();
+				TypeDescriptor descriptor = TypeDescriptor.parse(readString());
+				Signature signature = Signature.createTypedSignature(readString());
+				return new FieldDefEntry(parent, name, descriptor, signature, readAccess());
+			}
+			default:
+				throw new IllegalStateException("Unknown entry tag " + tag + " in index snapshot");
+		}
+	}
+
+	private AccessFlags readAccess() {
+		return new AccessFlags(readInt());
+	}
+
+	<E extends Entry<?>, C extends Entry<?>> EntryReference<E, C> readReference() {
+		E entry = readEntry();
+		C context = readEntry();
+		boolean named = readBoolean();
+
+		ReferenceTargetType targetType;
+		switch (TARGET_KINDS[readInt()]) {
+			case UNINITIALIZED:
+				targetType = ReferenceTargetType.uninitialized();
+				break;
+			case CLASS_TYPE:
+				targetType = ReferenceTargetType.classType(readEntry());
+				break;
+			default:
+				targetType = ReferenceTargetType.none();
+				break;
+		}
+
+		return new EntryReference<>(entry, named ? entry.getName() : null, context, targetType);
+	}
+
+	<T> void readCollection(Supplier<T> reader, Consumer<T> consumer) {
+		int size = readInt();
+		for (int i = 0; i < size; i++) {
+			consumer.accept(reader.get());
+		}
+	}
+
+	<K, V> void readMap(Supplier<K> keyReader, Supplier<V> valueReader, BiConsumer<K, V> consumer) {
+		int size = readInt();
+		for (int i = 0; i < size; i++) {
+			K key = keyReader.get();
+			consumer.accept(key, valueReader.get());
+		}
+	}
+
+	<K, V> void readMultimap(Multimap<K, V> multimap, Supplier<K> keyReader, Supplier<V> valueReader) {
+		int size = readInt();
+		for (int i = 0; i < size; i++) {
+			K key = keyReader.get();
+			readCollection(valueReader, value -> multimap.put(key, value));
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.entry.*;
+
+import javax.annotation.Nullable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes index state as a stream of variable-length integers. Strings and entries are written in
+ * full the first time they are seen and as back-references to their position afterwards, which
+ * keeps snapshots small and lets {@link SnapshotInput} share the decoded instances.
+ */
+final class SnapshotOutput {
+	static final int TAG_CLASS = 0;
+	static final int TAG_CLASS_DEF = 1;
+	static final int TAG_METHOD = 2;
+	static final int TAG_METHOD_DEF = 3;
+	static final int TAG_FIELD = 4;
+	static final int TAG_FIELD_DEF = 5;
+
+	private final DataOutputStream out;
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	// equal entries of different types (a ClassEntry and its ClassDefEntry) have to stay distinct
+	private final Map<Class<?>, Map<Entry<?>, Integer>> entries = new HashMap<>();
+	private int entryCount;
+
+	SnapshotOutput(OutputStream out) {
+		this.out = new DataOutputStream(out);
+	}
+
+	void writeInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	void writeLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	void writeBoolean(boolean value) throws IOException {
+		out.writeByte(value ? 1 : 0);
+	}
+
+	void writeBytes(byte[] bytes) throws IOException {
+		writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	void writeString(@Nullable String value) throws IOException {
+		if (value == null) {
+			writeInt(0);
+			return;
+		}
+
+		Integer id = strings.get(value);
+		if (id != null) {
+			writeInt(id + 2);
+			return;
+		}
+
+		strings.put(value, strings.size());
+		writeInt(1);
+
+		// chars rather than UTF-8 so that unpaired surrogates in obfuscated names survive the round trip
+		writeInt(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			writeInt(value.charAt(i));
+		}
+	}
+
+	void writeEntry(@Nullable Entry<?> entry) throws IOException {
+		if (entry == null) {
+			writeInt(0);
+			return;
+		}
+
+		Map<Entry<?>, Integer> entriesOfType = entries.computeIfAbsent(entry.getClass(), type -> new HashMap<>());
+		Integer id = entriesOfType.get(entry);
+		if (id != null) {
+			writeInt(id + 2);
+			return;
+		}
+
+		writeInt(1);
+		writeEntryBody(entry);
+
+		// registered after the body so that the reader sees ids in the same order it creates entries
+		entriesOfType.put(entry, entryCount++);
+	}
+
+	private void writeEntryBody(Entry<?> entry) throws IOException {
+		if (entry instanceof ClassDefEntry) {
+			ClassDefEntry classEntry = (ClassDefEntry) entry;
+			writeInt(TAG_CLASS_DEF);
+			writeString(classEntry.getFullName());
+			writeSignature(classEntry.getSignature());
+			writeAccess(classEntry.getAccess());
+			writeEntry(classEntry.getSuperClass());
+			writeInt(classEntry.getInterfaces().length);
+			for (ClassEntry interfaceEntry : classEntry.getInterfaces()) {
+				writeEntry(interfaceEntry);
+			}
+		} else if (entry instanceof ClassEntry) {
+			writeInt(TAG_CLASS);
+			writeString(((ClassEntry) entry).getFullName());
+		} else if (entry instanceof MethodDefEntry) {
+			MethodDefEntry methodEntry = (MethodDefEntry) entry;
+			writeInt(TAG_METHOD_DEF);
+			writeEntry(methodEntry.getParent());
+			writeString(methodEntry.getName());
+			writeString(methodEntry.getDesc().toString());
+			writeSignature(methodEntry.getSignature());
+			writeAccess(methodEntry.getAccess());
+		} else if (entry instanceof MethodEntry) {
+			MethodEntry methodEntry = (MethodEntry) entry;
+			writeInt(TAG_METHOD);
+			writeEntry(methodEntry.getParent());
+			writeString(methodEntry.getName());
+			writeString(methodEntry.getDesc().toString());
+		} else if (entry instanceof FieldDefEntry) {
+			FieldDefEntry fieldEntry = (FieldDefEntry) entry;
+			writeInt(TAG_FIELD_DEF);
+			writeEntry(fieldEntry.getParent());
+			writeString(fieldEntry.getName());
+			writeString(fieldEntry.getDesc().toString());
+			writeSignature(fieldEntry.getSignature());
+			writeAccess(fieldEntry.getAccess());
+		} else if (entry instanceof FieldEntry) {
+			FieldEntry fieldEntry = (FieldEntry) entry;
+			writeInt(TAG_FIELD);
+			writeEntry(fieldEntry.getParent());
+			writeString(fieldEntry.getName());
+			writeString(fieldEntry.getDesc().toString());
+		} else {
+			throw new IllegalArgumentException("Cannot write entry to index snapshot: " + entry);
+		}
+	}
+
+	private void writeSignature(Signature signature) throws IOException {
+		writeString(signature.getSignature());
+	}
+
+	private void writeAccess(AccessFlags access) throws IOException {
+		writeInt(access.getFlags());
+	}
+
+	void writeReference(EntryReference<?, ?> reference) throws IOException {
+		writeEntry(reference.entry);
+		writeEntry(reference.context);
+		writeBoolean(reference.isNamed());
+
+		ReferenceTargetType targetType = reference.targetType;
+		writeInt(targetType.getKind().ordinal());
+		if (targetType.getKind() == ReferenceTargetType.Kind.CLASS_TYPE) {
+			writeEntry(((ReferenceTargetType.ClassType) targetType).getEntry());
+		}
+	}
+
+	<T> void writeCollection(Collection<T> collection, ValueWriter<T> writer) throws IOException {
+		writeInt(collection.size());
+		for (T value : collection) {
+			writer.write(value);
+		}
+	}
+
+	<K, V> void writeMap(Map<K, V> map, ValueWriter<K> keyWriter, ValueWriter<V> valueWriter) throws IOException {
+		writeInt(map.size());
+		for (Map.Entry<K, V> entry : map.entrySet()) {
+			keyWriter.write(entry.getKey());
+			valueWriter.write(entry.getValue());
+		}
+	}
+
+	<K, V> void writeMultimap(Multimap<K, V> multimap, ValueWriter<K> keyWriter, ValueWriter<V> valueWriter) throws IOException {
+		writeMap(multimap.asMap(), keyWriter, values -> writeCollection(values, valueWriter));
+	}
+
+	void flush() throws IOException {
+		out.flush();
+	}
+
+	interface ValueWriter<T> {
+		void write(T value) throws IOException;
+	}
+}
@@ -0,0 +1,46 @@
+package cuchaz.enigma.analysis.index;
+
+/**
+ * Disjoint sets over dense ids, with path halving and union by size.
+ */
+final class UnionFind {
+	private final int[] parents;
+	private final int[] sizes;
+
+	UnionFind(int size) {
+		parents = new int[size];
+		sizes = new int[size];
+		for (int i = 0; i < size; i++) {
+			parents[i] = i;
+			sizes[i] = 1;
+		}
+	}
+
+	int find(int id) {
+		while (parents[id] != id) {
+			parents[id] = parents[parents[id]];
+			id = parents[id];
+		}
+		return id;
+	}
+
+	void union(int a, int b) {
+		int rootA = find(a);
+		int rootB = find(b);
+		if (rootA == rootB) {
+			return;
+		}
+
+		if (sizes[rootA] < sizes[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		parents[rootB] = rootA;
+		sizes[rootA] += sizes[rootB];
+	}
+
+	int size(int id) {
+		return sizes[find(id)];
+	}
+}
@@ -17,11 +17,11 @@ public class AsmObjectTranslator {
 				return Type.getObjectType(translator.translate(classEntry).getFullName());
 			}
 			case Type.ARRAY: {
-				TypeDescriptor descriptor = new TypeDescriptor(descString);
+				TypeDescriptor descriptor = TypeDescriptor.parse(descString);
 				return Type.getType(translator.translate(descriptor).toString());
 			}
 			case Type.METHOD: {
-				MethodDescriptor descriptor = new MethodDescriptor(descString);
+				MethodDescriptor descriptor = MethodDescriptor.parse(descString);
 				return Type.getMethodType(translator.translate(descriptor).toString());
 			}
 		}
@@ -29,7 +29,7 @@ public class AsmObjectTranslator {
 	}
 
 	public static Handle translateHandle(Translator translator, Handle handle) {
-		MethodEntry entry = new MethodEntry(new ClassEntry(handle.getOwner()), handle.getName(), new MethodDescriptor(handle.getDesc()));
+		MethodEntry entry = new MethodEntry(new ClassEntry(handle.getOwner()), handle.getName(), MethodDescriptor.parse(handle.getDesc()));
 		MethodEntry translatedMethod = translator.translate(entry);
 		ClassEntry ownerClass = translatedMethod.getParent();
 		return new Handle(handle.getTag(), ownerClass.getFullName(), translatedMethod.getName(), translatedMethod.getDesc().toString(), handle.isInterface());
@@ -67,7 +67,7 @@ public class LocalVariableFixVisitor extends ClassVisitor {
 			} else if (parameterIndices.containsKey(index)) {
 				name = fixParameterName(parameterIndices.get(index), name);
 			} else if (isInvalidName(name)) {
-				name = LocalNameGenerator.generateLocalVariableName(index, new TypeDescriptor(desc));
+				name = LocalNameGenerator.generateLocalVariableName(index, TypeDescriptor.parse(desc));
 			}
 
 			super.visitLocalVariable(name, desc, signature, start, end, index);
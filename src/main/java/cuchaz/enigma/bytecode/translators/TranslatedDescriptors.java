@@ -0,0 +1,59 @@
+package cuchaz.enigma.bytecode.translators;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the class names and descriptors translated while visiting a single class, since the
+ * same few of them show up in most of its frames and instructions.
+ *
+ * <p>The mappings behind a translator can change between passes, so an instance must not outlive
+ * the class visitor that created it. Not thread safe.
+ */
+final class TranslatedDescriptors {
+	private final Translator translator;
+
+	private final Map<String, String> classNames = new HashMap<>();
+	private final Map<String, TypeDescriptor> types = new HashMap<>();
+	private final Map<String, MethodDescriptor> methods = new HashMap<>();
+
+	TranslatedDescriptors(Translator translator) {
+		this.translator = translator;
+	}
+
+	Translator getTranslator() {
+		return translator;
+	}
+
+	String translateClassName(String name) {
+		String translated = classNames.get(name);
+		if (translated == null) {
+			translated = translator.translate(new ClassEntry(name)).getFullName();
+			classNames.put(name, translated);
+		}
+		return translated;
+	}
+
+	TypeDescriptor translateType(String desc) {
+		TypeDescriptor translated = types.get(desc);
+		if (translated == null) {
+			translated = translator.translate(TypeDescriptor.parse(desc));
+			types.put(desc, translated);
+		}
+		return translated;
+	}
+
+	MethodDescriptor translateMethod(String desc) {
+		MethodDescriptor translated = methods.get(desc);
+		if (translated == null) {
+			translated = translator.translate(MethodDescriptor.parse(desc));
+			methods.put(desc, translated);
+		}
+		return translated;
+	}
+}
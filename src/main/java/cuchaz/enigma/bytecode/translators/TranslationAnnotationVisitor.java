@@ -8,11 +8,17 @@ import org.objectweb.asm.AnnotationVisitor;
 
 public class TranslationAnnotationVisitor extends AnnotationVisitor {
 	private final Translator translator;
+	private final TranslatedDescriptors descriptors;
 	private final ClassEntry annotationEntry;
 
 	public TranslationAnnotationVisitor(Translator translator, ClassEntry annotationEntry, int api, AnnotationVisitor av) {
+		this(new TranslatedDescriptors(translator), annotationEntry, api, av);
+	}
+
+	TranslationAnnotationVisitor(TranslatedDescriptors descriptors, ClassEntry annotationEntry, int api, AnnotationVisitor av) {
 		super(api, av);
-		this.translator = translator;
+		this.translator = descriptors.getTranslator();
+		this.descriptors = descriptors;
 		this.annotationEntry = annotationEntry;
 	}
 
@@ -23,29 +29,29 @@ public class TranslationAnnotationVisitor extends AnnotationVisitor {
 
 	@Override
 	public AnnotationVisitor visitArray(String name) {
-		return new TranslationAnnotationVisitor(translator, annotationEntry, api, super.visitArray(name));
+		return new TranslationAnnotationVisitor(descriptors, annotationEntry, api, super.visitArray(name));
 	}
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String name, String desc) {
-		TypeDescriptor type = new TypeDescriptor(desc);
+		TypeDescriptor type = TypeDescriptor.parse(desc);
 		if (name != null) {
 			FieldEntry annotationField = translator.translate(new FieldEntry(annotationEntry, name, type));
 			return super.visitAnnotation(annotationField.getName(), annotationField.getDesc().toString());
 		} else {
-			return super.visitAnnotation(null, translator.translate(type).toString());
+			return super.visitAnnotation(null, descriptors.translateType(desc).toString());
 		}
 	}
 
 	@Override
 	public void visitEnum(String name, String desc, String value) {
-		TypeDescriptor type = new TypeDescriptor(desc);
+		TypeDescriptor type = TypeDescriptor.parse(desc);
 		FieldEntry enumField = translator.translate(new FieldEntry(type.getTypeEntry(), value, type));
 		if (name != null) {
 			FieldEntry annotationField = translator.translate(new FieldEntry(annotationEntry, name, type));
 			super.visitEnum(annotationField.getName(), annotationField.getDesc().toString(), enumField.getName());
 		} else {
-			super.visitEnum(null, translator.translate(type).toString(), enumField.getName());
+			super.visitEnum(null, descriptors.translateType(desc).toString(), enumField.getName());
 		}
 	}
 }
@@ -21,12 +21,14 @@ import java.util.Arrays;
 
 public class TranslationClassVisitor extends ClassVisitor {
 	private final Translator translator;
+	private final TranslatedDescriptors descriptors;
 
 	private ClassDefEntry obfClassEntry;
 
 	public TranslationClassVisitor(Translator translator, int api, ClassVisitor cv) {
 		super(api, cv);
 		this.translator = translator;
+		this.descriptors = new TranslatedDescriptors(translator);
 	}
 
 	@Override
@@ -45,7 +47,7 @@ public class TranslationClassVisitor extends ClassVisitor {
 		FieldDefEntry entry = FieldDefEntry.parse(obfClassEntry, access, name, desc, signature);
 		FieldDefEntry translatedEntry = translator.translate(entry);
 		FieldVisitor fv = super.visitField(translatedEntry.getAccess().getFlags(), translatedEntry.getName(), translatedEntry.getDesc().toString(), translatedEntry.getSignature().toString(), value);
-		return new TranslationFieldVisitor(translator, translatedEntry, api, fv);
+		return new TranslationFieldVisitor(descriptors, translatedEntry, api, fv);
 	}
 
 	@Override
@@ -54,10 +56,10 @@ public class TranslationClassVisitor extends ClassVisitor {
 		MethodDefEntry translatedEntry = translator.translate(entry);
 		String[] translatedExceptions = new String[exceptions.length];
 		for (int i = 0; i < exceptions.length; i++) {
-			translatedExceptions[i] = translator.translate(new ClassEntry(exceptions[i])).getFullName();
+			translatedExceptions[i] = descriptors.translateClassName(exceptions[i]);
 		}
 		MethodVisitor mv = super.visitMethod(translatedEntry.getAccess().getFlags(), translatedEntry.getName(), translatedEntry.getDesc().toString(), translatedEntry.getSignature().toString(), translatedExceptions);
-		return new TranslationMethodVisitor(translator, obfClassEntry, entry, api, mv);
+		return new TranslationMethodVisitor(descriptors, entry, api, mv);
 	}
 
 	@Override
@@ -79,7 +81,7 @@ public class TranslationClassVisitor extends ClassVisitor {
 	@Override
 	public void visitOuterClass(String owner, String name, String desc) {
 		if (desc != null) {
-			MethodEntry translatedEntry = translator.translate(new MethodEntry(new ClassEntry(owner), name, new MethodDescriptor(desc)));
+			MethodEntry translatedEntry = translator.translate(new MethodEntry(new ClassEntry(owner), name, MethodDescriptor.parse(desc)));
 			super.visitOuterClass(translatedEntry.getParent().getFullName(), translatedEntry.getName(), translatedEntry.getDesc().toString());
 		} else {
 			super.visitOuterClass(owner, name, desc);
@@ -88,15 +90,15 @@ public class TranslationClassVisitor extends ClassVisitor {
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-		TypeDescriptor translatedDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor translatedDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitAnnotation(translatedDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, translatedDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, translatedDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-		TypeDescriptor translatedDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor translatedDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitTypeAnnotation(typeRef, typePath, translatedDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, translatedDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, translatedDesc.getTypeEntry(), api, av);
 	}
 }
@@ -9,25 +9,29 @@ import org.objectweb.asm.TypePath;
 
 public class TranslationFieldVisitor extends FieldVisitor {
 	private final FieldDefEntry fieldEntry;
-	private final Translator translator;
+	private final TranslatedDescriptors descriptors;
 
 	public TranslationFieldVisitor(Translator translator, FieldDefEntry fieldEntry, int api, FieldVisitor fv) {
+		this(new TranslatedDescriptors(translator), fieldEntry, api, fv);
+	}
+
+	TranslationFieldVisitor(TranslatedDescriptors descriptors, FieldDefEntry fieldEntry, int api, FieldVisitor fv) {
 		super(api, fv);
-		this.translator = translator;
+		this.descriptors = descriptors;
 		this.fieldEntry = fieldEntry;
 	}
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitAnnotation(typeDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, typeDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitAnnotation(typeDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, typeDesc.getTypeEntry(), api, av);
 	}
 }
@@ -10,13 +10,19 @@ import org.objectweb.asm.*;
 public class TranslationMethodVisitor extends MethodVisitor {
 	private final MethodDefEntry methodEntry;
 	private final Translator translator;
+	private final TranslatedDescriptors descriptors;
 
 	private int parameterIndex = 0;
 	private int parameterLvIndex;
 
 	public TranslationMethodVisitor(Translator translator, ClassDefEntry ownerEntry, MethodDefEntry methodEntry, int api, MethodVisitor mv) {
+		this(new TranslatedDescriptors(translator), methodEntry, api, mv);
+	}
+
+	TranslationMethodVisitor(TranslatedDescriptors descriptors, MethodDefEntry methodEntry, int api, MethodVisitor mv) {
 		super(api, mv);
-		this.translator = translator;
+		this.translator = descriptors.getTranslator();
+		this.descriptors = descriptors;
 		this.methodEntry = methodEntry;
 
 		parameterLvIndex = methodEntry.getAccess().isStatic() ? 0 : 1;
@@ -32,14 +38,14 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitFieldInsn(int opcode, String owner, String name, String desc) {
-		FieldEntry entry = new FieldEntry(new ClassEntry(owner), name, new TypeDescriptor(desc));
+		FieldEntry entry = new FieldEntry(new ClassEntry(owner), name, TypeDescriptor.parse(desc));
 		FieldEntry translatedEntry = translator.translate(entry);
 		super.visitFieldInsn(opcode, translatedEntry.getParent().getFullName(), translatedEntry.getName(), translatedEntry.getDesc().toString());
 	}
 
 	@Override
 	public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
-		MethodEntry entry = new MethodEntry(new ClassEntry(owner), name, new MethodDescriptor(desc));
+		MethodEntry entry = new MethodEntry(new ClassEntry(owner), name, MethodDescriptor.parse(desc));
 		MethodEntry translatedEntry = translator.translate(entry);
 		super.visitMethodInsn(opcode, translatedEntry.getParent().getFullName(), translatedEntry.getName(), translatedEntry.getDesc().toString(), itf);
 	}
@@ -59,7 +65,7 @@ public class TranslationMethodVisitor extends MethodVisitor {
 			Object object = array[i];
 			if (object instanceof String) {
 				String type = (String) object;
-				array[i] = translator.translate(new ClassEntry(type)).getFullName();
+				array[i] = descriptors.translateClassName(type);
 			}
 		}
 		return array;
@@ -67,34 +73,33 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitAnnotation(typeDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, typeDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitParameterAnnotation(parameter, typeDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, typeDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-		TypeDescriptor typeDesc = translator.translate(new TypeDescriptor(desc));
+		TypeDescriptor typeDesc = descriptors.translateType(desc);
 		AnnotationVisitor av = super.visitTypeAnnotation(typeRef, typePath, typeDesc.toString(), visible);
-		return new TranslationAnnotationVisitor(translator, typeDesc.getTypeEntry(), api, av);
+		return new TranslationAnnotationVisitor(descriptors, typeDesc.getTypeEntry(), api, av);
 	}
 
 	@Override
 	public void visitTypeInsn(int opcode, String type) {
-		ClassEntry translatedEntry = translator.translate(new ClassEntry(type));
-		super.visitTypeInsn(opcode, translatedEntry.getFullName());
+		super.visitTypeInsn(opcode, descriptors.translateClassName(type));
 	}
 
 	@Override
 	public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
-		MethodDescriptor translatedMethodDesc = translator.translate(new MethodDescriptor(desc));
+		MethodDescriptor translatedMethodDesc = descriptors.translateMethod(desc);
 		Object[] translatedBsmArgs = new Object[bsmArgs.length];
 		for (int i = 0; i < bsmArgs.length; i++) {
 			translatedBsmArgs[i] = AsmObjectTranslator.translateValue(translator, bsmArgs[i]);
@@ -109,14 +114,13 @@ public class TranslationMethodVisitor extends MethodVisitor {
 
 	@Override
 	public void visitMultiANewArrayInsn(String desc, int dims) {
-		super.visitMultiANewArrayInsn(translator.translate(new TypeDescriptor(desc)).toString(), dims);
+		super.visitMultiANewArrayInsn(descriptors.translateType(desc).toString(), dims);
 	}
 
 	@Override
 	public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
 		if (type != null) {
-			ClassEntry translatedEntry = translator.translate(new ClassEntry(type));
-			super.visitTryCatchBlock(start, end, handler, translatedEntry.getFullName());
+			super.visitTryCatchBlock(start, end, handler, descriptors.translateClassName(type));
 		} else {
 			super.visitTryCatchBlock(start, end, handler, type);
 		}
@@ -126,7 +130,7 @@ public class TranslationMethodVisitor extends MethodVisitor {
 	public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index) {
 		signature = translator.translate(Signature.createTypedSignature(signature)).toString();
 		name = translateVariableName(index, name);
-		desc = translator.translate(new TypeDescriptor(desc)).toString();
+		desc = descriptors.translateType(desc).toString();
 
 		super.visitLocalVariable(name, desc, signature, start, end, index);
 	}
@@ -8,6 +8,7 @@ import cuchaz.enigma.source.Decompilers;
 
 import cuchaz.enigma.utils.I18n;
 
+import javax.annotation.Nullable;
 import javax.swing.*;
 import javax.swing.plaf.metal.MetalLookAndFeel;
 import java.awt.*;
@@ -16,6 +17,8 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Config {
 	public static class AlphaColorEntry {
@@ -189,6 +192,10 @@ public class Config {
 
 	public Decompiler decompiler = Decompiler.PROCYON;
 
+	public boolean indexCache = true;
+	// the directory the index snapshots are kept in, or null for the one in the enigma directory
+	public String indexCacheDirectory;
+
 	private Config() {
 		gson = new GsonBuilder()
 			.registerTypeAdapter(Integer.class, new IntSerializer())
@@ -253,6 +260,17 @@ public class Config {
 		}
 	}
 
+	/**
+	 * @return the directory to keep index snapshots in, or {@code null} if they should not be kept
+	 */
+	@Nullable
+	public Path getIndexCacheDirectory() {
+		if (!indexCache) {
+			return null;
+		}
+		return indexCacheDirectory != null ? Paths.get(indexCacheDirectory) : new File(ENIGMA_DIR, "index-cache").toPath();
+	}
+
 	public static Config getInstance() {
 		return INSTANCE;
 	}
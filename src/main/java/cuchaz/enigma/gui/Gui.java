@@ -232,7 +232,12 @@ public class Gui {
 					}
 
 					Object node = path.getLastPathComponent();
-					if (node instanceof ReferenceTreeNode) {
+					if (node instanceof MoreReferencesTreeNode) {
+						TreeNode parent = ((MoreReferencesTreeNode) node).getParent();
+						controller.loadMoreReferences((ReferenceTreeNode<?, ?>) parent);
+						((DefaultTreeModel) callsTree.getModel()).nodeStructureChanged(parent);
+						callsTree.expandPath(path.getParentPath());
+					} else if (node instanceof ReferenceTreeNode) {
 						ReferenceTreeNode<Entry<?>, Entry<?>> referenceNode = ((ReferenceTreeNode<Entry<?>, Entry<?>>) node);
 						if (referenceNode.getReference() != null) {
 							controller.navigateTo(referenceNode.getReference());
@@ -81,6 +81,7 @@ public class GuiController {
 		this.gui = gui;
 		this.enigma = Enigma.builder()
 				.setProfile(profile)
+				.setIndexCacheDirectory(Config.getInstance().getIndexCacheDirectory())
 				.build();
 
 		decompilerService = Config.getInstance().decompiler.service;
@@ -528,6 +529,10 @@ public class GuiController {
 		return rootNode;
 	}
 
+	public void loadMoreReferences(ReferenceTreeNode<?, ?> node) {
+		node.loadMoreReferences(project.getJarIndex());
+	}
+
 	public void rename(EntryReference<Entry<?>, Entry<?>> reference, String newName, boolean refreshClassTree) {
 		Entry<?> entry = reference.getNameableEntry();
 		project.getMapper().mapFromObf(entry, new EntryMapping(newName));
@@ -0,0 +1,248 @@
+package cuchaz.enigma.translation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableSet;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link MappingTranslator} that remembers what it translated entries and descriptors to.
+ *
+ * <p>While translating, every mapping that is looked up is recorded as a dependency of the result,
+ * including the lookups made for nested translations such as parents and descriptors. Changing the
+ * mapping of an entry then only has to drop the results that looked up that entry or anything
+ * below it, which is what {@link #invalidate(Entry)} does. Mapping changes that are not reported
+ * leave stale translations behind.
+ *
+ * <p>Only a bounded number of translations is kept, so translating a whole jar, as exporting
+ * does, does not keep every translation of it alive afterwards. Translating never takes a lock
+ * that other translations wait for; only invalidating does.
+ */
+public class CachingTranslator implements Translator {
+	private static final Set<Class<?>> CACHED_TYPES = ImmutableSet.of(
+			ClassEntry.class, FieldEntry.class, MethodEntry.class,
+			TypeDescriptor.class, MethodDescriptor.class, Signature.class
+	);
+
+	private static final int MAX_CACHED = 100_000;
+
+	private final EntryMap<EntryMapping> mappings;
+	private final EntryResolver resolver;
+
+	private final Cache<Translatable, Translation> cache = CacheBuilder.newBuilder()
+			.maximumSize(MAX_CACHED)
+			.removalListener((RemovalListener<Translatable, Translation>) notification -> removeDependent(notification.getValue()))
+			.build();
+	// the cached translations by the outermost entry of each of their dependencies
+	private final Map<Entry<?>, Set<Translation>> dependents = new ConcurrentHashMap<>();
+
+	// stores hold the read lock, so they only wait for invalidations, which hold the write lock
+	private final ReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+	private volatile long generation;
+
+	private final ThreadLocal<Deque<Set<Entry<?>>>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+	private final EntryMap<EntryMapping> recordingMappings = new RecordingEntryMap();
+
+	public CachingTranslator(EntryMap<EntryMapping> mappings, EntryResolver resolver) {
+		this.mappings = mappings;
+		this.resolver = resolver;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T extends Translatable> T translate(T translatable) {
+		if (translatable == null) {
+			return null;
+		}
+
+		// def entries and local variables compare equal to entries they translate differently from
+		if (!CACHED_TYPES.contains(translatable.getClass())) {
+			return (T) translatable.translate(this, resolver, recordingMappings);
+		}
+
+		Deque<Set<Entry<?>>> frames = this.frames.get();
+		Set<Entry<?>> outerFrame = frames.peek();
+
+		Translation cached = cache.getIfPresent(translatable);
+		if (cached != null) {
+			if (outerFrame != null) {
+				outerFrame.addAll(cached.dependencies);
+			}
+			return (T) cached.value;
+		}
+
+		long generation = this.generation;
+
+		Set<Entry<?>> dependencies = new HashSet<>();
+		frames.push(dependencies);
+		Translatable translated;
+		try {
+			translated = translatable.translate(this, resolver, recordingMappings);
+		} finally {
+			frames.pop();
+		}
+
+		if (outerFrame != null) {
+			outerFrame.addAll(dependencies);
+		}
+		store(new Translation(translatable, translated, dependencies), generation);
+
+		return (T) translated;
+	}
+
+	private void store(Translation translation, long generation) {
+		// a mapping changed while translating, so the result may already be out of date
+		if (this.generation != generation) {
+			return;
+		}
+
+		Lock lock = invalidationLock.readLock();
+		lock.lock();
+		try {
+			if (this.generation != generation) {
+				return;
+			}
+
+			// registered before it is cached, so that no invalidation can miss it once it is visible
+			for (Entry<?> dependency : translation.dependencies) {
+				dependents.computeIfAbsent(getOutermost(dependency), entry -> ConcurrentHashMap.newKeySet()).add(translation);
+			}
+			if (cache.asMap().putIfAbsent(translation.key, translation) != null) {
+				removeDependent(translation);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drops the cached translations that depend on the mapping of the given entry, or on the
+	 * mapping of any entry below it.
+	 */
+	public void invalidate(Entry<?> entry) {
+		Lock lock = invalidationLock.writeLock();
+		lock.lock();
+		try {
+			generation++;
+
+			Set<Translation> candidates = dependents.get(getOutermost(entry));
+			if (candidates == null) {
+				return;
+			}
+
+			List<Translation> invalidated = candidates.stream()
+					.filter(translation -> dependsOn(translation, entry))
+					.collect(Collectors.toList());
+			for (Translation translation : invalidated) {
+				cache.asMap().remove(translation.key, translation);
+				removeDependent(translation);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void invalidateAll() {
+		Lock lock = invalidationLock.writeLock();
+		lock.lock();
+		try {
+			generation++;
+			cache.invalidateAll();
+			dependents.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static boolean dependsOn(Translation translation, Entry<?> entry) {
+		for (Entry<?> dependency : translation.dependencies) {
+			if (dependency.getAncestry().contains(entry)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void removeDependent(Translation translation) {
+		for (Entry<?> dependency : translation.dependencies) {
+			Set<Translation> entryDependents = dependents.get(getOutermost(dependency));
+			if (entryDependents != null) {
+				entryDependents.remove(translation);
+			}
+		}
+	}
+
+	private static Entry<?> getOutermost(Entry<?> entry) {
+		return entry.getAncestry().get(0);
+	}
+
+	// compared by identity, so that dropping one translation never drops another of the same key
+	private static class Translation {
+		final Translatable key;
+		final Translatable value;
+		final Collection<Entry<?>> dependencies;
+
+		Translation(Translatable key, Translatable value, Set<Entry<?>> dependencies) {
+			this.key = key;
+			this.value = value;
+			this.dependencies = dependencies.isEmpty() ? ImmutableSet.of() : dependencies;
+		}
+	}
+	private class RecordingEntryMap implements EntryMap<EntryMapping> {
+		@Override
+		public void insert(Entry<?> entry, EntryMapping value) {
+			mappings.insert(entry, value);
+		}
+
+		@Nullable
+		@Override
+		public EntryMapping remove(Entry<?> entry) {
+			return mappings.remove(entry);
+		}
+
+		@Nullable
+		@Override
+		public EntryMapping get(Entry<?> entry) {
+			Set<Entry<?>> frame = frames.get().peek();
+			if (frame != null) {
+				frame.add(entry);
+			}
+			return mappings.get(entry);
+		}
+
+		@Override
+		public Stream<Entry<?>> getAllEntries() {
+			return mappings.getAllEntries();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return mappings.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package cuchaz.enigma.translation.mapping;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Indexes mapped obfuscated entries by the name they are mapped to. Entries are also grouped by
+ * their obfuscated parent, so the mapped siblings that share a name are found without walking the
+ * mappings. Unmapped entries are not indexed, since they keep their obfuscated name.
+ */
+public class DeobfuscatedNameIndex {
+	// the names the entries are indexed under, to find them again when their mapping changes
+	private final HashEntryTree<String> names = new HashEntryTree<>();
+	private final Multimap<SiblingName, Entry<?>> entriesBySiblingName = HashMultimap.create();
+	private final Multimap<String, Entry<?>> entriesByName = HashMultimap.create();
+
+	public DeobfuscatedNameIndex(EntryTree<EntryMapping> mappings) {
+		for (EntryTreeNode<EntryMapping> node : mappings) {
+			EntryMapping mapping = node.getValue();
+			if (mapping != null) {
+				put(node.getEntry(), mapping.getTargetName());
+			}
+		}
+	}
+
+	/**
+	 * Indexes the entry under the name it is now mapped to, or drops it if the mapping was removed.
+	 */
+	public synchronized void update(Entry<?> obfEntry, @Nullable EntryMapping mapping) {
+		String name = mapping != null ? mapping.getTargetName() : null;
+		String oldName = names.get(obfEntry);
+		if (Objects.equals(name, oldName)) {
+			return;
+		}
+
+		if (oldName != null) {
+			names.remove(obfEntry);
+			entriesBySiblingName.remove(new SiblingName(obfEntry.getParent(), oldName), obfEntry);
+			entriesByName.remove(oldName, obfEntry);
+		}
+		if (name != null) {
+			put(obfEntry, name);
+		}
+	}
+
+	/**
+	 * Re-reads the mappings of the entry and all entries below it, after they were changed without
+	 * going through {@link #update(Entry, EntryMapping)}.
+	 */
+	public synchronized void refresh(Entry<?> obfEntry, EntryTree<EntryMapping> mappings) {
+		Set<Entry<?>> entries = new LinkedHashSet<>();
+		entries.add(obfEntry);
+
+		EntryTreeNode<String> indexedNode = names.findNode(obfEntry);
+		if (indexedNode != null) {
+			entries.addAll(indexedNode.getChildrenRecursively());
+		}
+		EntryTreeNode<EntryMapping> mappedNode = mappings.findNode(obfEntry);
+		if (mappedNode != null) {
+			entries.addAll(mappedNode.getChildrenRecursively());
+		}
+
+		for (Entry<?> entry : entries) {
+			update(entry, mappings.get(entry));
+		}
+	}
+
+	private void put(Entry<?> obfEntry, String name) {
+		names.insert(obfEntry, name);
+		entriesBySiblingName.put(new SiblingName(obfEntry.getParent(), name), obfEntry);
+		entriesByName.put(name, obfEntry);
+	}
+
+	/**
+	 * @return the obfuscated entries below the given obfuscated parent that are mapped to the name,
+	 * where a null parent stands for top level classes
+	 */
+	public synchronized Collection<Entry<?>> getEntries(@Nullable Entry<?> obfParent, String name) {
+		return ImmutableList.copyOf(entriesBySiblingName.get(new SiblingName(obfParent, name)));
+	}
+
+	/**
+	 * @return all obfuscated entries that are mapped to the name
+	 */
+	public synchronized Collection<Entry<?>> getEntries(String name) {
+		return ImmutableList.copyOf(entriesByName.get(name));
+	}
+
+	@Nullable
+	public synchronized String getName(Entry<?> obfEntry) {
+		return names.get(obfEntry);
+	}
+
+	private static final class SiblingName {
+		@Nullable
+		private final Entry<?> parent;
+		private final String name;
+
+		SiblingName(@Nullable Entry<?> parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SiblingName)) {
+				return false;
+			}
+			SiblingName other = (SiblingName) obj;
+			return Objects.equals(parent, other.parent) && name.equals(other.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(parent) * 31 + name.hashCode();
+		}
+	}
+}
@@ -1,12 +1,14 @@
 package cuchaz.enigma.translation.mapping;
 
 import cuchaz.enigma.analysis.index.JarIndex;
-import cuchaz.enigma.translation.MappingTranslator;
+import cuchaz.enigma.translation.CachingTranslator;
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.tree.ConcurrentEntryTree;
 import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
-import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.PersistentEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
 import javax.annotation.Nullable;
@@ -18,26 +20,38 @@ public class EntryRemapper {
 	private final DeltaTrackingTree<EntryMapping> obfToDeobf;
 
 	private final EntryResolver obfResolver;
-	private final Translator deobfuscator;
+	private final CachingTranslator deobfuscator;
 
+	private final DeobfuscatedNameIndex deobfNames;
 	private final MappingValidator validator;
 
-	private EntryRemapper(JarIndex jarIndex, EntryTree<EntryMapping> obfToDeobf) {
+	private EntryRemapper(JarIndex jarIndex, EntryTree<EntryMapping> mappings) {
+		// persistent trees take snapshots in constant time, which keeps taking deltas cheap
+		EntryTree<EntryMapping> obfToDeobf = mappings instanceof PersistentEntryTree ? mappings : new PersistentEntryTree<>(mappings);
 		this.obfToDeobf = new DeltaTrackingTree<>(obfToDeobf);
 
 		this.obfResolver = jarIndex.getEntryResolver();
 
-		this.deobfuscator = new MappingTranslator(obfToDeobf, obfResolver);
+		this.deobfuscator = new CachingTranslator(obfToDeobf, obfResolver);
 
-		this.validator = new MappingValidator(obfToDeobf, deobfuscator, jarIndex);
+		this.deobfNames = new DeobfuscatedNameIndex(obfToDeobf);
+		this.validator = new MappingValidator(deobfNames, deobfuscator, jarIndex);
 	}
 
+	/**
+	 * Creates a remapper starting out with the given mappings. A {@link PersistentEntryTree},
+	 * including a {@link ConcurrentEntryTree}, is used as it is, and updated by the remapper. Any
+	 * other tree is copied into a persistent tree first.
+	 *
+	 * <p>Pass a concurrent tree when other threads write to the mappings while the remapper is in
+	 * use, or when they read long enough that edits should not be serialized behind each other.
+	 */
 	public static EntryRemapper mapped(JarIndex index, EntryTree<EntryMapping> obfToDeobf) {
 		return new EntryRemapper(index, obfToDeobf);
 	}
 
 	public static EntryRemapper empty(JarIndex index) {
-		return new EntryRemapper(index, new HashEntryTree<>());
+		return new EntryRemapper(index, new PersistentEntryTree<>());
 	}
 
 	public <E extends Entry<?>> void mapFromObf(E obfuscatedEntry, @Nullable EntryMapping deobfMapping) {
@@ -55,6 +69,8 @@ public class EntryRemapper {
 
 		for (E resolvedEntry : resolvedEntries) {
 			obfToDeobf.insert(resolvedEntry, deobfMapping);
+			deobfuscator.invalidate(resolvedEntry);
+			deobfNames.update(resolvedEntry, deobfMapping);
 		}
 	}
 
@@ -87,6 +103,57 @@ public class EntryRemapper {
 		return obfToDeobf.getChildren(obfuscatedEntry);
 	}
 
+	/**
+	 * Drops the translations cached for the given entry and everything below it, and re-reads their
+	 * deobfuscated names. Changes made to {@link #getObfToDeobf()} directly have to be reported
+	 * through here.
+	 */
+	public void mappingsChanged(Entry<?> obfuscatedEntry) {
+		deobfuscator.invalidate(obfuscatedEntry);
+		deobfNames.refresh(obfuscatedEntry, obfToDeobf);
+	}
+
+	/**
+	 * @return the obfuscated entries that are currently mapped to the given name
+	 */
+	public Collection<Entry<?>> getObfEntries(String deobfName) {
+		return deobfNames.getEntries(deobfName);
+	}
+
+	/**
+	 * @return the obfuscated entries below the given obfuscated parent that are currently mapped to
+	 * the given name, where a null parent stands for top level classes
+	 */
+	public Collection<Entry<?>> getObfEntries(@Nullable Entry<?> obfParent, String deobfName) {
+		return deobfNames.getEntries(obfParent, deobfName);
+	}
+
+	/**
+	 * Translates a deobfuscated class back to the obfuscated class it was translated from.
+	 *
+	 * @return the obfuscated class, or null if no class is translated to the given one
+	 */
+	@Nullable
+	public ClassEntry obfuscate(ClassEntry deobfClass) {
+		ClassEntry obfParent = null;
+		if (deobfClass.getParent() != null) {
+			obfParent = obfuscate(deobfClass.getParent());
+			if (obfParent == null) {
+				return null;
+			}
+		}
+
+		for (Entry<?> obfEntry : deobfNames.getEntries(obfParent, deobfClass.getName())) {
+			if (obfEntry instanceof ClassEntry) {
+				return (ClassEntry) obfEntry;
+			}
+		}
+
+		// unmapped classes keep their name, unless that name was mapped away
+		ClassEntry obfClass = new ClassEntry(obfParent, deobfClass.getName());
+		return deobfNames.getName(obfClass) == null ? obfClass : null;
+	}
+
 	public DeltaTrackingTree<EntryMapping> getObfToDeobf() {
 		return obfToDeobf;
 	}
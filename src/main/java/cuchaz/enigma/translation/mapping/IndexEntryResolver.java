@@ -1,36 +1,55 @@
 package cuchaz.enigma.translation.mapping;
 
-import com.google.common.collect.Sets;
-import cuchaz.enigma.analysis.IndexTreeBuilder;
-import cuchaz.enigma.analysis.MethodImplementationsTreeNode;
-import cuchaz.enigma.analysis.MethodInheritanceTreeNode;
 import cuchaz.enigma.analysis.index.BridgeMethodIndex;
 import cuchaz.enigma.analysis.index.EntryIndex;
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
-import cuchaz.enigma.translation.VoidTranslator;
+import cuchaz.enigma.analysis.index.MethodGroupIndex;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class IndexEntryResolver implements EntryResolver {
+	private final JarIndex index;
 	private final EntryIndex entryIndex;
 	private final InheritanceIndex inheritanceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
+	private final MethodGroupIndex methodGroupIndex;
 
-	private final IndexTreeBuilder treeBuilder;
+	// resolved class members by strategy, which only change when the index does
+	private final Map<ResolutionStrategy, Map<Entry<ClassEntry>, Set<Entry<ClassEntry>>>> childResolutions = new EnumMap<>(ResolutionStrategy.class);
 
 	public IndexEntryResolver(JarIndex index) {
+		this.index = index;
 		this.entryIndex = index.getEntryIndex();
 		this.inheritanceIndex = index.getInheritanceIndex();
 		this.bridgeMethodIndex = index.getBridgeMethodIndex();
+		this.methodGroupIndex = index.getMethodGroupIndex();
 
-		this.treeBuilder = new IndexTreeBuilder(index);
+		for (ResolutionStrategy strategy : ResolutionStrategy.values()) {
+			childResolutions.put(strategy, new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Forgets the resolutions of members of the given classes. Must be called for every class whose
+	 * members, bridges or ancestors changed, and for the descendants of those classes.
+	 */
+	public void invalidate(Set<ClassEntry> classEntries) {
+		for (Map<Entry<ClassEntry>, Set<Entry<ClassEntry>>> resolutions : childResolutions.values()) {
+			resolutions.keySet().removeIf(entry -> classEntries.contains(entry.getParent()));
+		}
+	}
+
+	public void invalidateAll() {
+		childResolutions.values().forEach(Map::clear);
 	}
 
 	@Override
@@ -42,7 +61,7 @@ public class IndexEntryResolver implements EntryResolver {
 
 		Entry<ClassEntry> classChild = getClassChild(entry);
 		if (classChild != null && !(classChild instanceof ClassEntry)) {
-			AccessFlags access = entryIndex.getEntryAccess(classChild);
+			AccessFlags access = getEntryAccess(classChild);
 
 			// If we're looking for the closest and this entry exists, we're done looking
 			if (strategy == ResolutionStrategy.RESOLVE_CLOSEST && access != null) {
@@ -83,6 +102,24 @@ public class IndexEntryResolver implements EntryResolver {
 	}
 
 	private Set<Entry<ClassEntry>> resolveChildEntry(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
+		// definitions and documented entries carry more than their identity, so they are not interchangeable
+		// with the plain entries the cache holds
+		Class<?> type = entry.getClass();
+		if ((type != MethodEntry.class && type != FieldEntry.class) || entry.getJavadocs() != null) {
+			return computeChildEntry(entry, strategy);
+		}
+
+		Map<Entry<ClassEntry>, Set<Entry<ClassEntry>>> resolutions = childResolutions.get(strategy);
+		Set<Entry<ClassEntry>> resolved = resolutions.get(entry);
+		if (resolved == null) {
+			// not computeIfAbsent, since resolving an entry resolves its ancestors through the same map
+			resolved = Collections.unmodifiableSet(computeChildEntry(entry, strategy));
+			resolutions.put(entry, resolved);
+		}
+		return resolved;
+	}
+
+	private Set<Entry<ClassEntry>> computeChildEntry(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
 		ClassEntry ownerClass = entry.getParent();
 
 		if (entry instanceof MethodEntry) {
@@ -117,7 +154,7 @@ public class IndexEntryResolver implements EntryResolver {
 		Set<Entry<ClassEntry>> parentResolution = resolveChildEntry(entry, strategy);
 
 		if (parentResolution.isEmpty()) {
-			AccessFlags parentAccess = entryIndex.getEntryAccess(entry);
+			AccessFlags parentAccess = getEntryAccess(entry);
 			if (parentAccess != null && !parentAccess.isPrivate()) {
 				return Collections.singleton(entry);
 			}
@@ -128,7 +165,7 @@ public class IndexEntryResolver implements EntryResolver {
 
 	private Collection<Entry<ClassEntry>> resolveClosest(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
 		// When resolving closest, we want to first check if we exist before looking further down
-		AccessFlags parentAccess = entryIndex.getEntryAccess(entry);
+		AccessFlags parentAccess = getEntryAccess(entry);
 		if (parentAccess != null && !parentAccess.isPrivate()) {
 			return Collections.singleton(entry);
 		} else {
@@ -136,6 +173,20 @@ public class IndexEntryResolver implements EntryResolver {
 		}
 	}
 
+	/**
+	 * Looks the entry up in the jar, then in the libraries, so that members can resolve to the
+	 * library classes they are declared in.
+	 */
+	@Nullable
+	private AccessFlags getEntryAccess(Entry<?> entry) {
+		AccessFlags access = entryIndex.getEntryAccess(entry);
+		JarIndex libraryIndex = index.getLibraryIndex();
+		if (access == null && libraryIndex != null) {
+			access = libraryIndex.getEntryIndex().getEntryAccess(entry);
+		}
+		return access;
+	}
+
 	@Override
 	public Set<Entry<?>> resolveEquivalentEntries(Entry<?> entry) {
 		MethodEntry relevantMethod = entry.findAncestor(MethodEntry.class);
@@ -161,67 +212,6 @@ public class IndexEntryResolver implements EntryResolver {
 			throw new IllegalArgumentException("Could not find method " + methodEntry);
 		}
 
-		if (!canInherit(methodEntry, access)) {
-			return Collections.singleton(methodEntry);
-		}
-
-		Set<MethodEntry> methodEntries = Sets.newHashSet();
-		resolveEquivalentMethods(methodEntries, treeBuilder.buildMethodInheritance(VoidTranslator.INSTANCE, methodEntry));
-		return methodEntries;
-	}
-
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodInheritanceTreeNode node) {
-		MethodEntry methodEntry = node.getMethodEntry();
-		if (methodEntries.contains(methodEntry)) {
-			return;
-		}
-
-		AccessFlags flags = entryIndex.getMethodAccess(methodEntry);
-		if (flags != null && canInherit(methodEntry, flags)) {
-			// collect the entry
-			methodEntries.add(methodEntry);
-		}
-
-		// look at bridge methods!
-		MethodEntry bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(methodEntry);
-		while (bridgedMethod != null) {
-			methodEntries.addAll(resolveEquivalentMethods(bridgedMethod));
-			bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgedMethod);
-		}
-
-		// look at interface methods too
-		for (MethodImplementationsTreeNode implementationsNode : treeBuilder.buildMethodImplementations(VoidTranslator.INSTANCE, methodEntry)) {
-			resolveEquivalentMethods(methodEntries, implementationsNode);
-		}
-
-		// recurse
-		for (int i = 0; i < node.getChildCount(); i++) {
-			resolveEquivalentMethods(methodEntries, (MethodInheritanceTreeNode) node.getChildAt(i));
-		}
-	}
-
-	private void resolveEquivalentMethods(Set<MethodEntry> methodEntries, MethodImplementationsTreeNode node) {
-		MethodEntry methodEntry = node.getMethodEntry();
-		AccessFlags flags = entryIndex.getMethodAccess(methodEntry);
-		if (flags != null && !flags.isPrivate() && !flags.isStatic()) {
-			// collect the entry
-			methodEntries.add(methodEntry);
-		}
-
-		// look at bridge methods!
-		MethodEntry bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(methodEntry);
-		while (bridgedMethod != null) {
-			methodEntries.addAll(resolveEquivalentMethods(bridgedMethod));
-			bridgedMethod = bridgeMethodIndex.getBridgeFromSpecialized(bridgedMethod);
-		}
-
-		// recurse
-		for (int i = 0; i < node.getChildCount(); i++) {
-			resolveEquivalentMethods(methodEntries, (MethodImplementationsTreeNode) node.getChildAt(i));
-		}
-	}
-
-	private boolean canInherit(MethodEntry entry, AccessFlags access) {
-		return !entry.isConstructor() && !access.isPrivate() && !access.isStatic() && !access.isFinal();
+		return methodGroupIndex.getGroup(methodEntry);
 	}
 }
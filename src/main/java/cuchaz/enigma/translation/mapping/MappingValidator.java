@@ -4,7 +4,6 @@ import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.throwables.IllegalNameException;
 import cuchaz.enigma.translation.Translator;
-import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
@@ -13,12 +12,12 @@ import java.util.HashSet;
 import java.util.stream.Collectors;
 
 public class MappingValidator {
-	private final EntryTree<EntryMapping> obfToDeobf;
+	private final DeobfuscatedNameIndex deobfNames;
 	private final Translator deobfuscator;
 	private final JarIndex index;
 
-	public MappingValidator(EntryTree<EntryMapping> obfToDeobf, Translator deobfuscator, JarIndex index) {
-		this.obfToDeobf = obfToDeobf;
+	public MappingValidator(DeobfuscatedNameIndex deobfNames, Translator deobfuscator, JarIndex index) {
+		this.deobfNames = deobfNames;
 		this.deobfuscator = deobfuscator;
 		this.index = index;
 	}
@@ -39,7 +38,9 @@ public class MappingValidator {
 			Entry<?> relatedEntry = entry.replaceAncestor(containingClass, relatedClass);
 			Entry<?> translatedEntry = deobfuscator.translate(relatedEntry);
 
-			Collection<Entry<?>> translatedSiblings = obfToDeobf.getSiblings(relatedEntry).stream()
+			// only the siblings mapped to the name can clash with it
+			Collection<Entry<?>> translatedSiblings = deobfNames.getEntries(relatedEntry.getParent(), name).stream()
+					.filter(sibling -> !sibling.equals(relatedEntry))
 					.map(deobfuscator::translate)
 					.collect(Collectors.toList());
 
@@ -0,0 +1,44 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link PersistentEntryTree} whose writes do not lock either: each write copies the path down
+ * to the entry it changes and publishes the new root with a compare-and-set, and tries again if
+ * another write got there first. Writes never wait for each other, and {@link #snapshot()} still
+ * sees every write either completely or not at all.
+ */
+public class ConcurrentEntryTree<T> extends PersistentEntryTree<T> {
+	public ConcurrentEntryTree() {
+	}
+
+	public ConcurrentEntryTree(EntryTree<T> tree) {
+		super(tree);
+	}
+
+	@Override
+	public void insert(Entry<?> entry, @Nullable T value) {
+		update(entry.getAncestry(), value);
+	}
+
+	@Override
+	@Nullable
+	public T remove(Entry<?> entry) {
+		return update(entry.getAncestry(), null);
+	}
+
+	@Override
+	public ConcurrentEntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		ConcurrentEntryTree<T> translatedTree = new ConcurrentEntryTree<>();
+		for (EntryTreeNode<T> node : this) {
+			translatedTree.insert(translator.translate(node.getEntry()), node.getValue());
+		}
+		return translatedTree;
+	}
+}
@@ -10,37 +10,78 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Spliterator;
 import java.util.stream.Stream;
 
+/**
+ * Keeps track of the entries changed since the last delta was taken.
+ *
+ * <p>When the tree wraps a {@link PersistentEntryTree}, including a {@link ConcurrentEntryTree},
+ * changes are not recorded one by one. Taking a delta instead compares a snapshot of the tree with the
+ * snapshot taken for the previous delta, which only visits the parts of the tree that changed
+ * since. Snapshots see every update either completely or not at all, so each update ends up in
+ * exactly one delta, even while other threads keep updating the tree.
+ *
+ * <p>Other trees record each change, and updates are serialized with taking deltas.
+ */
 public class DeltaTrackingTree<T> implements EntryTree<T> {
 	private final EntryTree<T> delegate;
+	// the delegate when its snapshots can be compared, otherwise null
+	@Nullable
+	private final PersistentEntryTree<T> diffable;
 
+	// all guarded by this; for diffable trees, changes only holds the changes tracked explicitly,
+	// and diffReference is the same tree as deltaReference
 	private EntryTree<T> deltaReference;
+	private PersistentEntryTree<T> diffReference;
 	private EntryTree<Object> changes = new HashEntryTree<>();
 
 	public DeltaTrackingTree(EntryTree<T> delegate) {
 		this.delegate = delegate;
-		this.deltaReference = new HashEntryTree<>(delegate);
+		this.diffable = delegate instanceof PersistentEntryTree ? (PersistentEntryTree<T>) delegate : null;
+		updateReference();
 	}
 
 	public DeltaTrackingTree() {
-		this(new HashEntryTree<>());
+		this(new PersistentEntryTree<>());
+	}
+
+	private void updateReference() {
+		if (diffable != null) {
+			diffReference = diffable.snapshot();
+			deltaReference = diffReference;
+		} else {
+			deltaReference = new HashEntryTree<>(delegate);
+		}
 	}
 
 	@Override
 	public void insert(Entry<?> entry, T value) {
-		trackChange(entry);
-		delegate.insert(entry, value);
+		if (diffable != null) {
+			delegate.insert(entry, value);
+			return;
+		}
+
+		synchronized (this) {
+			trackChange(entry);
+			delegate.insert(entry, value);
+		}
 	}
 
 	@Nullable
 	@Override
 	public T remove(Entry<?> entry) {
-		trackChange(entry);
-		return delegate.remove(entry);
+		if (diffable != null) {
+			return delegate.remove(entry);
+		}
+
+		synchronized (this) {
+			trackChange(entry);
+			return delegate.remove(entry);
+		}
 	}
 
-	public void trackChange(Entry<?> entry) {
+	public synchronized void trackChange(Entry<?> entry) {
 		changes.insert(entry, MappingDelta.PLACEHOLDER);
 	}
 
@@ -74,7 +115,7 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	@Override
 	public DeltaTrackingTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
 		DeltaTrackingTree<T> translatedTree = new DeltaTrackingTree<>(delegate.translate(translator, resolver, mappings));
-		translatedTree.changes = changes.translate(translator, resolver, mappings);
+		translatedTree.changes = getPendingChanges().translate(translator, resolver, mappings);
 		return translatedTree;
 	}
 
@@ -93,18 +134,42 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 		return delegate.iterator();
 	}
 
-	public MappingDelta<T> takeDelta() {
-		MappingDelta<T> delta = new MappingDelta<>(deltaReference, changes);
-		resetDelta();
-		return delta;
+	@Override
+	public Spliterator<EntryTreeNode<T>> spliterator() {
+		return delegate.spliterator();
+	}
+
+	public synchronized MappingDelta<T> takeDelta() {
+		EntryTree<T> reference = deltaReference;
+		PersistentEntryTree<T> previousSnapshot = diffReference;
+		EntryTree<Object> changes = this.changes;
+
+		updateReference();
+		this.changes = new HashEntryTree<>();
+
+		if (diffable != null) {
+			trackChanges(changes, diffReference, previousSnapshot);
+		}
+		return new MappingDelta<>(reference, changes);
+	}
+
+	private synchronized EntryTree<Object> getPendingChanges() {
+		if (diffable == null) {
+			return changes;
+		}
+
+		EntryTree<Object> pendingChanges = new HashEntryTree<>(changes);
+		trackChanges(pendingChanges, diffable.snapshot(), diffReference);
+		return pendingChanges;
 	}
 
-	private void resetDelta() {
-		deltaReference = new HashEntryTree<>(delegate);
-		changes = new HashEntryTree<>();
+	private static <T> void trackChanges(EntryTree<Object> changes, PersistentEntryTree<T> tree, PersistentEntryTree<T> reference) {
+		for (Entry<?> entry : tree.getChangedEntries(reference)) {
+			changes.insert(entry, MappingDelta.PLACEHOLDER);
+		}
 	}
 
-	public boolean isDirty() {
-		return !changes.isEmpty();
+	public synchronized boolean isDirty() {
+		return !getPendingChanges().isEmpty();
 	}
 }
@@ -0,0 +1,43 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the subtrees below some nodes depth first, yielding every node before its children.
+ * Only an iterator per level of the tree is held at a time. The tree must not be modified while
+ * the walk is in progress.
+ */
+final class DepthFirstNodeIterator<T> implements Iterator<EntryTreeNode<T>> {
+	private final Deque<Iterator<? extends EntryTreeNode<T>>> stack = new ArrayDeque<>();
+
+	DepthFirstNodeIterator(Iterator<? extends EntryTreeNode<T>> roots) {
+		stack.push(roots);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!stack.isEmpty()) {
+			if (stack.peek().hasNext()) {
+				return true;
+			}
+			stack.pop();
+		}
+		return false;
+	}
+
+	@Override
+	public EntryTreeNode<T> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		EntryTreeNode<T> node = stack.peek().next();
+		if (!node.getChildNodes().isEmpty()) {
+			stack.push(node.getChildNodes().iterator());
+		}
+		return node;
+	}
+}
@@ -1,5 +1,6 @@
 package cuchaz.enigma.translation.mapping.tree;
 
+import com.google.common.collect.Iterators;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
 import javax.annotation.Nullable;
@@ -21,10 +22,7 @@ public interface EntryTreeNode<T> {
 
 	default Collection<? extends EntryTreeNode<T>> getNodesRecursively() {
 		Collection<EntryTreeNode<T>> nodes = new ArrayList<>();
-		nodes.add(this);
-		for (EntryTreeNode<T> node : getChildNodes()) {
-			nodes.addAll(node.getNodesRecursively());
-		}
+		new DepthFirstNodeIterator<T>(Iterators.singletonIterator(this)).forEachRemaining(nodes::add);
 		return nodes;
 	}
 
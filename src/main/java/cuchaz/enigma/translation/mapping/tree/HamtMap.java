@@ -0,0 +1,506 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import javax.annotation.Nullable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash array mapped trie. Updates return a new map that shares every node off the
+ * path to the changed key with the old one, so both stay valid and cheap to keep around.
+ *
+ * <p>Each level of the trie consumes 5 bits of the key's hash. Keys whose hashes are entirely
+ * equal end up together in a collision node at the bottom.
+ */
+final class HamtMap<K, V> {
+	private static final HamtMap<?, ?> EMPTY = new HamtMap<>(null, 0);
+	private static final int BITS = 5;
+	// 7 levels of bitmap nodes use up all 32 bits of a hash, with room for a collision node below
+	private static final int MAX_DEPTH = 8;
+
+	@Nullable
+	private final Node root;
+	private final int size;
+
+	private HamtMap(@Nullable Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> HamtMap<K, V> empty() {
+		return (HamtMap<K, V>) EMPTY;
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	V get(Object key) {
+		return root != null ? (V) root.get(key, hash(key), 0) : null;
+	}
+
+	/**
+	 * @return a map with the key mapped to the value, or this map if it already was
+	 */
+	HamtMap<K, V> with(K key, V value) {
+		boolean[] added = new boolean[1];
+		Node base = root != null ? root : BitmapNode.EMPTY;
+		Node newRoot = base.put(key, value, hash(key), 0, added);
+		if (newRoot == root) {
+			return this;
+		}
+		return new HamtMap<>(newRoot, added[0] ? size + 1 : size);
+	}
+
+	/**
+	 * @return a map without the key, or this map if it did not contain it
+	 */
+	HamtMap<K, V> without(Object key) {
+		if (root == null) {
+			return this;
+		}
+
+		Node newRoot = root.remove(key, hash(key), 0);
+		if (newRoot == root) {
+			return this;
+		}
+		return newRoot != null ? new HamtMap<>(newRoot, size - 1) : empty();
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	Set<K> keySet() {
+		return new AbstractSet<K>() {
+			@Override
+			public boolean contains(Object o) {
+				return o != null && get(o) != null;
+			}
+
+			@Override
+			public Iterator<K> iterator() {
+				return new PairIterator<>(root, true);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new PairIterator<>(root, false);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Reports every key whose value differs between two maps. Parts of the trie that the maps share
+	 * are skipped without being looked at, so comparing a map with an updated version of itself
+	 * takes time proportional to the number of updates.
+	 */
+	static <K, V> void diff(HamtMap<K, V> before, HamtMap<K, V> after, DiffListener<K, V> listener) {
+		diff(before.root, after.root, 0, listener);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> void diff(@Nullable Node before, @Nullable Node after, int shift, DiffListener<K, V> listener) {
+		if (before == after) {
+			return;
+		}
+
+		if (before == null) {
+			new PairIterator<>(after, true).forEachPair(listener::added);
+			return;
+		} else if (after == null) {
+			new PairIterator<>(before, true).forEachPair(listener::removed);
+			return;
+		}
+
+		if (!(before instanceof BitmapNode) || !(after instanceof BitmapNode)) {
+			diffByLookup(before, after, shift, listener);
+			return;
+		}
+
+		BitmapNode beforeNode = (BitmapNode) before;
+		BitmapNode afterNode = (BitmapNode) after;
+		int bits = beforeNode.bitmap | afterNode.bitmap;
+		while (bits != 0) {
+			int bit = Integer.lowestOneBit(bits);
+			bits &= ~bit;
+
+			Node beforeSlot = beforeNode.slot(bit, shift);
+			Node afterSlot = afterNode.slot(bit, shift);
+			if (beforeSlot != null && afterSlot != null && beforeNode.isPair(bit) && afterNode.isPair(bit)) {
+				int beforeIndex = 2 * beforeNode.index(bit);
+				int afterIndex = 2 * afterNode.index(bit);
+				Object beforeKey = beforeNode.array[beforeIndex];
+				Object afterKey = afterNode.array[afterIndex];
+				Object beforeValue = beforeNode.array[beforeIndex + 1];
+				Object afterValue = afterNode.array[afterIndex + 1];
+				if (beforeKey.equals(afterKey)) {
+					if (beforeValue != afterValue) {
+						listener.changed((K) beforeKey, (V) beforeValue, (V) afterValue);
+					}
+				} else {
+					listener.removed((K) beforeKey, (V) beforeValue);
+					listener.added((K) afterKey, (V) afterValue);
+				}
+			} else {
+				diff(beforeSlot, afterSlot, shift + BITS, listener);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> void diffByLookup(Node before, Node after, int shift, DiffListener<K, V> listener) {
+		new PairIterator<>(before, true).<K, V>forEachPair((key, beforeValue) -> {
+			Object afterValue = after.get(key, hash(key), shift);
+			if (afterValue == null) {
+				listener.removed(key, beforeValue);
+			} else if (afterValue != beforeValue) {
+				listener.changed(key, beforeValue, (V) afterValue);
+			}
+		});
+		new PairIterator<>(after, true).<K, V>forEachPair((key, afterValue) -> {
+			if (before.get(key, hash(key), shift) == null) {
+				listener.added(key, afterValue);
+			}
+		});
+	}
+
+	private static int hash(Object key) {
+		int hash = key.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int bit(int hash, int shift) {
+		return 1 << ((hash >>> shift) & 31);
+	}
+
+	interface DiffListener<K, V> {
+		void added(K key, V value);
+
+		void removed(K key, V value);
+
+		void changed(K key, V before, V after);
+	}
+
+	/**
+	 * Nodes keep their contents in an array of alternating keys and values. In a bitmap node, a null
+	 * key means that the value next to it is the node one level down.
+	 */
+	private abstract static class Node {
+		final Object[] array;
+
+		Node(Object[] array) {
+			this.array = array;
+		}
+
+		@Nullable
+		abstract Object get(Object key, int hash, int shift);
+
+		abstract Node put(Object key, Object value, int hash, int shift, boolean[] added);
+
+		/**
+		 * @return the node without the key, this node if it did not contain it, or null if nothing is left
+		 */
+		@Nullable
+		abstract Node remove(Object key, int hash, int shift);
+	}
+
+	private static final class BitmapNode extends Node {
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		final int bitmap;
+
+		BitmapNode(int bitmap, Object[] array) {
+			super(array);
+			this.bitmap = bitmap;
+		}
+
+		int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		boolean isPair(int bit) {
+			return array[2 * index(bit)] != null;
+		}
+
+		/**
+		 * @return the contents of a slot as a node one level down, or null if the slot is empty
+		 */
+		@Nullable
+		Node slot(int bit, int shift) {
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+
+			int i = 2 * index(bit);
+			Object key = array[i];
+			if (key == null) {
+				return (Node) array[i + 1];
+			}
+			return new BitmapNode(HamtMap.bit(hash(key), shift + BITS), new Object[] {key, array[i + 1]});
+		}
+
+		@Override
+		Object get(Object key, int hash, int shift) {
+			int bit = HamtMap.bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+
+			int i = 2 * index(bit);
+			Object slotKey = array[i];
+			if (slotKey == null) {
+				return ((Node) array[i + 1]).get(key, hash, shift + BITS);
+			}
+			return key.equals(slotKey) ? array[i + 1] : null;
+		}
+
+		@Override
+		Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+			int bit = HamtMap.bit(hash, shift);
+			int i = 2 * index(bit);
+			if ((bitmap & bit) == 0) {
+				added[0] = true;
+				Object[] newArray = new Object[array.length + 2];
+				System.arraycopy(array, 0, newArray, 0, i);
+				newArray[i] = key;
+				newArray[i + 1] = value;
+				System.arraycopy(array, i, newArray, i + 2, array.length - i);
+				return new BitmapNode(bitmap | bit, newArray);
+			}
+
+			Object slotKey = array[i];
+			Object slotValue = array[i + 1];
+			if (slotKey == null) {
+				Node child = (Node) slotValue;
+				Node newChild = child.put(key, value, hash, shift + BITS, added);
+				return newChild == child ? this : withSlot(i, null, newChild);
+			}
+
+			if (key.equals(slotKey)) {
+				return slotValue == value ? this : withSlot(i, slotKey, value);
+			}
+
+			added[0] = true;
+			return withSlot(i, null, merge(slotKey, slotValue, key, value, hash, shift + BITS));
+		}
+
+		private static Node merge(Object key1, Object value1, Object key2, Object value2, int hash2, int shift) {
+			int hash1 = hash(key1);
+			if (hash1 == hash2) {
+				return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+			}
+
+			boolean[] ignored = new boolean[1];
+			return EMPTY.put(key1, value1, hash1, shift, ignored).put(key2, value2, hash2, shift, ignored);
+		}
+
+		@Override
+		Node remove(Object key, int hash, int shift) {
+			int bit = HamtMap.bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+
+			int i = 2 * index(bit);
+			Object slotKey = array[i];
+			if (slotKey == null) {
+				Node child = (Node) array[i + 1];
+				Node newChild = child.remove(key, hash, shift + BITS);
+				if (newChild == child) {
+					return this;
+				} else if (newChild == null) {
+					return withoutSlot(i, bit);
+				} else if (newChild instanceof BitmapNode && newChild.array.length == 2 && newChild.array[0] != null) {
+					// a single pair left below does not need a level of its own
+					return withSlot(i, newChild.array[0], newChild.array[1]);
+				}
+				return withSlot(i, null, newChild);
+			}
+
+			return key.equals(slotKey) ? withoutSlot(i, bit) : this;
+		}
+
+		private BitmapNode withSlot(int i, @Nullable Object key, Object value) {
+			Object[] newArray = array.clone();
+			newArray[i] = key;
+			newArray[i + 1] = value;
+			return new BitmapNode(bitmap, newArray);
+		}
+
+		@Nullable
+		private BitmapNode withoutSlot(int i, int bit) {
+			if (array.length == 2) {
+				return null;
+			}
+
+			Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, i);
+			System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+			return new BitmapNode(bitmap & ~bit, newArray);
+		}
+	}
+
+	private static final class CollisionNode extends Node {
+		final int hash;
+
+		CollisionNode(int hash, Object[] array) {
+			super(array);
+			this.hash = hash;
+		}
+
+		private int find(Object key) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		Object get(Object key, int hash, int shift) {
+			int i = find(key);
+			return i >= 0 ? array[i + 1] : null;
+		}
+
+		@Override
+		Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+			if (hash != this.hash) {
+				// the new key only shares part of the hash, so this level has to tell them apart
+				return new BitmapNode(HamtMap.bit(this.hash, shift), new Object[] {null, this}).put(key, value, hash, shift, added);
+			}
+
+			int i = find(key);
+			if (i >= 0) {
+				if (array[i + 1] == value) {
+					return this;
+				}
+				Object[] newArray = array.clone();
+				newArray[i + 1] = value;
+				return new CollisionNode(this.hash, newArray);
+			}
+
+			added[0] = true;
+			Object[] newArray = Arrays.copyOf(array, array.length + 2);
+			newArray[array.length] = key;
+			newArray[array.length + 1] = value;
+			return new CollisionNode(this.hash, newArray);
+		}
+
+		@Override
+		Node remove(Object key, int hash, int shift) {
+			int i = find(key);
+			if (i < 0) {
+				return this;
+			}
+
+			if (array.length == 4) {
+				int other = i == 0 ? 2 : 0;
+				return new BitmapNode(HamtMap.bit(this.hash, shift), new Object[] {array[other], array[other + 1]});
+			}
+
+			Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, i);
+			System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+			return new CollisionNode(this.hash, newArray);
+		}
+	}
+
+	/**
+	 * Walks the pairs below a node depth first, keeping one array and position per level.
+	 */
+	private static final class PairIterator<E> implements Iterator<E> {
+		private final Object[][] arrays = new Object[MAX_DEPTH][];
+		private final int[] positions = new int[MAX_DEPTH];
+		private final boolean keys;
+		private int depth = -1;
+
+		private Object nextKey;
+		private Object nextValue;
+
+		PairIterator(@Nullable Node root, boolean keys) {
+			this.keys = keys;
+			if (root != null) {
+				depth = 0;
+				arrays[0] = root.array;
+			}
+			advance();
+		}
+
+		private void advance() {
+			nextKey = null;
+			nextValue = null;
+			while (depth >= 0) {
+				Object[] array = arrays[depth];
+				int position = positions[depth];
+				if (position >= array.length) {
+					arrays[depth] = null;
+					positions[depth] = 0;
+					depth--;
+					continue;
+				}
+
+				positions[depth] = position + 2;
+				if (array[position] == null) {
+					depth++;
+					arrays[depth] = ((Node) array[position + 1]).array;
+					positions[depth] = 0;
+				} else {
+					nextKey = array[position];
+					nextValue = array[position + 1];
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextKey != null;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (nextKey == null) {
+				throw new NoSuchElementException();
+			}
+
+			Object next = keys ? nextKey : nextValue;
+			advance();
+			return (E) next;
+		}
+
+		@SuppressWarnings("unchecked")
+		<K, V> void forEachPair(BiConsumer<K, V> action) {
+			while (nextKey != null) {
+				K key = (K) nextKey;
+				V value = (V) nextValue;
+				advance();
+				action.accept(key, value);
+			}
+		}
+	}
+}
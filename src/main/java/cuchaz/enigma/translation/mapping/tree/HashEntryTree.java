@@ -153,11 +153,12 @@ public class HashEntryTree<T> implements EntryTree<T> {
 
 	@Override
 	public Iterator<EntryTreeNode<T>> iterator() {
-		Collection<EntryTreeNode<T>> nodes = new ArrayList<>();
-		for (EntryTreeNode<T> node : root.values()) {
-			nodes.addAll(node.getNodesRecursively());
-		}
-		return nodes.iterator();
+		return new DepthFirstNodeIterator<>(root.values().iterator());
+	}
+
+	@Override
+	public Spliterator<EntryTreeNode<T>> spliterator() {
+		return new NodeSpliterator<>(root.values().spliterator());
 	}
 
 	@Override
@@ -0,0 +1,57 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import com.google.common.collect.Iterators;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Traverses the subtrees below some root nodes depth first. Splitting hands whole subtrees to the
+ * new spliterator, so it splits as well as the spliterator of the roots does.
+ */
+final class NodeSpliterator<T> implements Spliterator<EntryTreeNode<T>> {
+	private final Spliterator<? extends EntryTreeNode<T>> roots;
+	private DepthFirstNodeIterator<T> subtree;
+
+	NodeSpliterator(Spliterator<? extends EntryTreeNode<T>> roots) {
+		this.roots = roots;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super EntryTreeNode<T>> action) {
+		while (subtree == null || !subtree.hasNext()) {
+			if (!roots.tryAdvance(root -> subtree = new DepthFirstNodeIterator<>(Iterators.singletonIterator(root)))) {
+				return false;
+			}
+		}
+
+		action.accept(subtree.next());
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super EntryTreeNode<T>> action) {
+		if (subtree != null) {
+			subtree.forEachRemaining(action);
+			subtree = null;
+		}
+		roots.forEachRemaining(root -> new DepthFirstNodeIterator<T>(Iterators.singletonIterator(root)).forEachRemaining(action));
+	}
+
+	@Override
+	public Spliterator<EntryTreeNode<T>> trySplit() {
+		Spliterator<? extends EntryTreeNode<T>> prefix = roots.trySplit();
+		return prefix != null ? new NodeSpliterator<>(prefix) : null;
+	}
+
+	@Override
+	public long estimateSize() {
+		// every root has at least itself to yield, the rest of the subtrees cannot be known up front
+		return roots.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return DISTINCT | NONNULL;
+	}
+}
@@ -0,0 +1,238 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An entry tree made of immutable nodes, kept in hash array mapped tries. Every update copies
+ * only the path from the root to the changed entry and shares everything else, which makes
+ * {@link #snapshot()} a constant time operation and lets {@link #getChangedEntries} skip the
+ * parts of two trees that they have in common.
+ *
+ * <p>Reads never block. Updates are serialized, and each one is published atomically, so readers
+ * see either all of an update or none of it. Iteration walks the tree as it was when it started,
+ * so the tree may be updated meanwhile. {@link ConcurrentEntryTree} drops the serialization of
+ * updates as well.
+ */
+public class PersistentEntryTree<T> implements EntryTree<T> {
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<PersistentEntryTree, HamtMap> ROOT = AtomicReferenceFieldUpdater.newUpdater(PersistentEntryTree.class, HamtMap.class, "root");
+
+	private volatile HamtMap<Entry<?>, PersistentTreeNode<T>> root;
+
+	public PersistentEntryTree() {
+		this(HamtMap.empty());
+	}
+
+	public PersistentEntryTree(EntryTree<T> tree) {
+		this();
+		for (EntryTreeNode<T> node : tree) {
+			if (node.hasValue()) {
+				insert(node.getEntry(), node.getValue());
+			}
+		}
+	}
+
+	PersistentEntryTree(HamtMap<Entry<?>, PersistentTreeNode<T>> root) {
+		this.root = root;
+	}
+
+	/**
+	 * Returns an independent copy of this tree as it is now. Nothing is copied: the snapshot
+	 * shares all of its nodes with this tree until either of them is updated.
+	 */
+	public PersistentEntryTree<T> snapshot() {
+		return new PersistentEntryTree<>(root);
+	}
+
+	@Override
+	public synchronized void insert(Entry<?> entry, @Nullable T value) {
+		update(entry.getAncestry(), value);
+	}
+
+	@Override
+	@Nullable
+	public synchronized T remove(Entry<?> entry) {
+		return update(entry.getAncestry(), null);
+	}
+
+	/**
+	 * Copies the path down to the entry with its new value, and publishes the new root with a
+	 * compare-and-set, trying again if another update got there first.
+	 *
+	 * @return the value the entry had before
+	 */
+	@Nullable
+	final T update(List<Entry<?>> ancestry, @Nullable T value) {
+		if (ancestry.isEmpty()) {
+			return null;
+		}
+
+		while (true) {
+			HamtMap<Entry<?>, PersistentTreeNode<T>> current = root;
+			PersistentTreeNode<T> node = findNode(current, ancestry);
+			T oldValue = node != null ? node.getValue() : null;
+			if (oldValue == value) {
+				return oldValue;
+			}
+
+			if (ROOT.compareAndSet(this, current, insert(current, ancestry, 0, value))) {
+				return oldValue;
+			}
+		}
+	}
+
+	private static <T> HamtMap<Entry<?>, PersistentTreeNode<T>> insert(HamtMap<Entry<?>, PersistentTreeNode<T>> generation, List<Entry<?>> ancestry, int depth, @Nullable T value) {
+		Entry<?> entry = ancestry.get(depth);
+		PersistentTreeNode<T> node = generation.get(entry);
+
+		PersistentTreeNode<T> updatedNode;
+		if (depth == ancestry.size() - 1) {
+			updatedNode = node != null ? node.withValue(value) : new PersistentTreeNode<>(entry, value, HamtMap.empty());
+		} else {
+			HamtMap<Entry<?>, PersistentTreeNode<T>> children = insert(node != null ? node.getChildMap() : HamtMap.empty(), ancestry, depth + 1, value);
+			updatedNode = node != null ? node.withChildren(children) : new PersistentTreeNode<>(entry, null, children);
+		}
+
+		if (updatedNode == node) {
+			return generation;
+		}
+		return updatedNode.isEmpty() ? generation.without(entry) : generation.with(entry, updatedNode);
+	}
+
+	@Override
+	@Nullable
+	public T get(Entry<?> entry) {
+		PersistentTreeNode<T> node = findNode(entry);
+		return node != null ? node.getValue() : null;
+	}
+
+	@Override
+	public boolean contains(Entry<?> entry) {
+		return get(entry) != null;
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		PersistentTreeNode<T> node = findNode(entry);
+		if (node == null) {
+			return Collections.emptyList();
+		}
+		return node.getChildren();
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		Entry<?> parent = entry.getParent();
+		Set<Entry<?>> siblings = new HashSet<>(parent == null ? root.keySet() : getChildren(parent));
+		siblings.remove(entry);
+		return siblings;
+	}
+
+	@Override
+	@Nullable
+	public PersistentTreeNode<T> findNode(Entry<?> entry) {
+		return findNode(root, entry.getAncestry());
+	}
+
+	@Nullable
+	private static <T> PersistentTreeNode<T> findNode(HamtMap<Entry<?>, PersistentTreeNode<T>> root, List<Entry<?>> ancestry) {
+		if (ancestry.isEmpty()) {
+			return null;
+		}
+
+		PersistentTreeNode<T> node = root.get(ancestry.get(0));
+		for (int i = 1; i < ancestry.size() && node != null; i++) {
+			node = node.getChildMap().get(ancestry.get(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Collects the entries whose values were replaced between this tree and another, usually an
+	 * earlier snapshot of it. Subtrees the two trees still share are not visited, so this takes time
+	 * proportional to the changes rather than to the size of the trees.
+	 */
+	public Set<Entry<?>> getChangedEntries(PersistentEntryTree<T> other) {
+		Set<Entry<?>> changed = new HashSet<>();
+		collectChanges(other.root, root, changed);
+		return changed;
+	}
+
+	private void collectChanges(HamtMap<Entry<?>, PersistentTreeNode<T>> before, HamtMap<Entry<?>, PersistentTreeNode<T>> after, Set<Entry<?>> changed) {
+		HamtMap.diff(before, after, new HamtMap.DiffListener<Entry<?>, PersistentTreeNode<T>>() {
+			@Override
+			public void added(Entry<?> entry, PersistentTreeNode<T> node) {
+				collectValued(node, changed);
+			}
+
+			@Override
+			public void removed(Entry<?> entry, PersistentTreeNode<T> node) {
+				collectValued(node, changed);
+			}
+
+			@Override
+			public void changed(Entry<?> entry, PersistentTreeNode<T> before, PersistentTreeNode<T> after) {
+				// values are compared by identity, since equal mappings may still differ in their javadocs
+				if (before.getValue() != after.getValue()) {
+					changed.add(entry);
+				}
+				collectChanges(before.getChildMap(), after.getChildMap(), changed);
+			}
+		});
+	}
+
+	private static void collectValued(EntryTreeNode<?> node, Set<Entry<?>> entries) {
+		for (EntryTreeNode<?> child : node.getNodesRecursively()) {
+			if (child.hasValue()) {
+				entries.add(child.getEntry());
+			}
+		}
+	}
+
+	@Override
+	public Iterator<EntryTreeNode<T>> iterator() {
+		return new DepthFirstNodeIterator<>(root.values().iterator());
+	}
+
+	@Override
+	public Spliterator<EntryTreeNode<T>> spliterator() {
+		return new NodeSpliterator<>(root.values().spliterator());
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		return StreamSupport.stream(spliterator(), false)
+				.filter(EntryTreeNode::hasValue)
+				.map(EntryTreeNode::getEntry);
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		return root.values().stream().map(Function.identity());
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return root.isEmpty();
+	}
+
+	@Override
+	public PersistentEntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		PersistentEntryTree<T> translatedTree = new PersistentEntryTree<>();
+		for (EntryTreeNode<T> node : this) {
+			translatedTree.insert(translator.translate(node.getEntry()), node.getValue());
+		}
+		return translatedTree;
+	}
+}
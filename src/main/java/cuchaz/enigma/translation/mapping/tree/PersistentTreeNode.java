@@ -0,0 +1,61 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * An immutable node of a {@link PersistentEntryTree} or a {@link ConcurrentEntryTree}. Updating a
+ * node creates a new one, which shares the children that did not change.
+ */
+public final class PersistentTreeNode<T> implements EntryTreeNode<T> {
+	private final Entry<?> entry;
+	@Nullable
+	private final T value;
+	private final HamtMap<Entry<?>, PersistentTreeNode<T>> children;
+
+	PersistentTreeNode(Entry<?> entry, @Nullable T value, HamtMap<Entry<?>, PersistentTreeNode<T>> children) {
+		this.entry = entry;
+		this.value = value;
+		this.children = children;
+	}
+
+	PersistentTreeNode<T> withValue(@Nullable T value) {
+		return value == this.value ? this : new PersistentTreeNode<>(entry, value, children);
+	}
+
+	PersistentTreeNode<T> withChildren(HamtMap<Entry<?>, PersistentTreeNode<T>> children) {
+		return children == this.children ? this : new PersistentTreeNode<>(entry, value, children);
+	}
+
+	HamtMap<Entry<?>, PersistentTreeNode<T>> getChildMap() {
+		return children;
+	}
+
+	@Override
+	@Nullable
+	public T getValue() {
+		return value;
+	}
+
+	@Override
+	public Entry<?> getEntry() {
+		return entry;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return children.isEmpty() && value == null;
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren() {
+		return children.keySet();
+	}
+
+	@Override
+	public Collection<PersistentTreeNode<T>> getChildNodes() {
+		return children.values();
+	}
+}
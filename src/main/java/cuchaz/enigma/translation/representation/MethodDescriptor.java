@@ -11,6 +11,10 @@
 
 package cuchaz.enigma.translation.representation;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.Translator;
@@ -25,35 +29,54 @@ import java.util.List;
 import java.util.function.Function;
 
 public class MethodDescriptor implements Translatable {
+	private static final Cache<String, MethodDescriptor> PARSED = CacheBuilder.newBuilder()
+			.maximumSize(8192)
+			.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+			.build();
 
-	private List<TypeDescriptor> argumentDescs;
-	private TypeDescriptor returnDesc;
+	private final List<TypeDescriptor> argumentDescs;
+	private final TypeDescriptor returnDesc;
+	private int hash;
 
 	public MethodDescriptor(String desc) {
 		try {
-			this.argumentDescs = Lists.newArrayList();
+			ImmutableList.Builder<TypeDescriptor> argumentDescs = ImmutableList.builder();
 			int i = 0;
 			while (i < desc.length()) {
 				char c = desc.charAt(i);
 				if (c == '(') {
-					assert (this.argumentDescs.isEmpty());
-					assert (this.returnDesc == null);
 					i++;
 				} else if (c == ')') {
 					i++;
 					break;
 				} else {
 					String type = TypeDescriptor.parseFirst(desc.substring(i));
-					this.argumentDescs.add(new TypeDescriptor(type));
+					argumentDescs.add(TypeDescriptor.parse(type));
 					i += type.length();
 				}
 			}
-			this.returnDesc = new TypeDescriptor(TypeDescriptor.parseFirst(desc.substring(i)));
+			this.argumentDescs = argumentDescs.build();
+			this.returnDesc = TypeDescriptor.parse(TypeDescriptor.parseFirst(desc.substring(i)));
 		} catch (Exception ex) {
 			throw new IllegalArgumentException("Unable to parse method descriptor: " + desc, ex);
 		}
 	}
 
+	/**
+	 * Same as the constructor, but recently parsed descriptors are shared instead of being
+	 * created again. Prefer this for descriptors read from bytecode.
+	 */
+	public static MethodDescriptor parse(String desc) {
+		Preconditions.checkNotNull(desc, "Desc cannot be null");
+
+		MethodDescriptor descriptor = PARSED.getIfPresent(desc);
+		if (descriptor == null) {
+			descriptor = new MethodDescriptor(desc);
+			PARSED.put(desc, descriptor);
+		}
+		return descriptor;
+	}
+
 	public MethodDescriptor(List<TypeDescriptor> argumentDescs, TypeDescriptor returnDesc) {
 		this.argumentDescs = argumentDescs;
 		this.returnDesc = returnDesc;
@@ -97,7 +120,11 @@ public class MethodDescriptor implements Translatable {
 
 	@Override
 	public int hashCode() {
-		return Utils.combineHashesOrdered(this.argumentDescs.hashCode(), this.returnDesc.hashCode());
+		int hash = this.hash;
+		if (hash == 0) {
+			this.hash = hash = Utils.combineHashesOrdered(this.argumentDescs.hashCode(), this.returnDesc.hashCode());
+		}
+		return hash;
 	}
 
 	public boolean hasClass(ClassEntry classEntry) {
@@ -12,6 +12,8 @@
 package cuchaz.enigma.translation.representation;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.Translator;
@@ -24,6 +26,10 @@ import java.util.Map;
 import java.util.function.Function;
 
 public class TypeDescriptor implements Translatable {
+	private static final Cache<String, TypeDescriptor> PARSED = CacheBuilder.newBuilder()
+			.maximumSize(8192)
+			.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+			.build();
 
 	protected final String desc;
 
@@ -39,6 +45,21 @@ public class TypeDescriptor implements Translatable {
 		this.desc = desc;
 	}
 
+	/**
+	 * Same as the constructor, but recently parsed descriptors are shared instead of being
+	 * created again. Prefer this for descriptors read from bytecode.
+	 */
+	public static TypeDescriptor parse(String desc) {
+		Preconditions.checkNotNull(desc, "Desc cannot be null");
+
+		TypeDescriptor descriptor = PARSED.getIfPresent(desc);
+		if (descriptor == null) {
+			descriptor = new TypeDescriptor(desc);
+			PARSED.put(desc, descriptor);
+		}
+		return descriptor;
+	}
+
 	public static String parseFirst(String in) {
 
 		if (in == null || in.length() <= 0) {
@@ -169,7 +190,7 @@ public class TypeDescriptor implements Translatable {
 		if (!isArray()) {
 			throw new IllegalStateException("not an array");
 		}
-		return new TypeDescriptor(this.desc.substring(getArrayDimension()));
+		return parse(this.desc.substring(getArrayDimension()));
 	}
 
 	public boolean containsType() {
@@ -202,7 +223,7 @@ public class TypeDescriptor implements Translatable {
 				}
 			}
 		}
-		return new TypeDescriptor(desc);
+		return desc == this.desc ? this : parse(desc);
 	}
 
 	private static String getArrayPrefix(int dimension) {
@@ -63,7 +63,7 @@ public class ClassEntry extends ParentedEntry<ClassEntry> implements Comparable<
 	@Override
 	public ClassEntry translate(Translator translator, @Nullable EntryMapping mapping) {
 		if (name.charAt(0) == '[') {
-			String translatedName = translator.translate(new TypeDescriptor(name)).toString();
+			String translatedName = translator.translate(TypeDescriptor.parse(name)).toString();
 			return new ClassEntry(parent, translatedName);
 		}
 
@@ -88,7 +88,7 @@ public class ClassEntry extends ParentedEntry<ClassEntry> implements Comparable<
 	}
 
 	public boolean equals(ClassEntry other) {
-		return other != null && Objects.equals(parent, other.parent) && this.name.equals(other.name);
+		return this == other || other != null && Objects.equals(parent, other.parent) && this.name.equals(other.name);
 	}
 
 	@Override
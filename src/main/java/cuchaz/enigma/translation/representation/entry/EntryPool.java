@@ -0,0 +1,120 @@
+package cuchaz.enigma.translation.representation.entry;
+
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonicalizes the plain class, method and field entries (and their descriptors) that bytecode
+ * references are parsed into, so that every distinct entry is only held once no matter how many
+ * instructions refer to it. Safe to share between threads.
+ *
+ * <p>Definitions and entries carrying javadocs are left alone, since they are not
+ * interchangeable with a plain entry that merely equals them.
+ */
+public final class EntryPool {
+	private final ConcurrentMap<String, ClassEntry> classes = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, MethodDescriptor> methodDescriptors = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, TypeDescriptor> typeDescriptors = new ConcurrentHashMap<>();
+	private final ConcurrentMap<MethodEntry, MethodEntry> methods = new ConcurrentHashMap<>();
+	private final ConcurrentMap<FieldEntry, FieldEntry> fields = new ConcurrentHashMap<>();
+
+	public ClassEntry getClassEntry(String name) {
+		ClassEntry entry = classes.get(name);
+		if (entry != null) {
+			return entry;
+		}
+
+		// the outer class is pooled first, outside of any map operation, so that nested classes share it
+		int outerIndex = name.lastIndexOf('$');
+		ClassEntry outerClass = outerIndex >= 0 ? getClassEntry(name.substring(0, outerIndex)) : null;
+		ClassEntry created = new ClassEntry(outerClass, ClassEntry.getInnerName(name));
+
+		ClassEntry existing = classes.putIfAbsent(name, created);
+		return existing != null ? existing : created;
+	}
+
+	public MethodDescriptor getMethodDescriptor(String desc) {
+		MethodDescriptor descriptor = methodDescriptors.get(desc);
+		if (descriptor != null) {
+			return descriptor;
+		}
+
+		MethodDescriptor created = new MethodDescriptor(desc);
+		MethodDescriptor existing = methodDescriptors.putIfAbsent(desc, created);
+		return existing != null ? existing : created;
+	}
+
+	public TypeDescriptor getTypeDescriptor(String desc) {
+		TypeDescriptor descriptor = typeDescriptors.get(desc);
+		if (descriptor != null) {
+			return descriptor;
+		}
+
+		TypeDescriptor created = new TypeDescriptor(desc);
+		TypeDescriptor existing = typeDescriptors.putIfAbsent(desc, created);
+		return existing != null ? existing : created;
+	}
+
+	public MethodEntry getMethodEntry(String owner, String name, String desc) {
+		return internMethod(new MethodEntry(getClassEntry(owner), name, getMethodDescriptor(desc)));
+	}
+
+	public FieldEntry getFieldEntry(String owner, String name, String desc) {
+		return internField(new FieldEntry(getClassEntry(owner), name, getTypeDescriptor(desc)));
+	}
+
+	/**
+	 * Returns the pooled instance equal to the given entry, or the entry itself if it cannot be
+	 * pooled.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Entry<?>> E intern(E entry) {
+		if (entry == null || entry.getJavadocs() != null) {
+			return entry;
+		}
+
+		Class<?> type = entry.getClass();
+		if (type == ClassEntry.class) {
+			return (E) getClassEntry(((ClassEntry) entry).getFullName());
+		} else if (type == MethodEntry.class) {
+			return (E) internMethod((MethodEntry) entry);
+		} else if (type == FieldEntry.class) {
+			return (E) internField((FieldEntry) entry);
+		}
+
+		return entry;
+	}
+
+	private MethodEntry internMethod(MethodEntry entry) {
+		MethodEntry pooled = methods.get(entry);
+		if (pooled != null) {
+			return pooled;
+		}
+
+		ClassEntry parent = getClassEntry(entry.getParent().getFullName());
+		if (parent != entry.getParent()) {
+			entry = new MethodEntry(parent, entry.getName(), entry.getDesc());
+		}
+
+		MethodEntry existing = methods.putIfAbsent(entry, entry);
+		return existing != null ? existing : entry;
+	}
+
+	private FieldEntry internField(FieldEntry entry) {
+		FieldEntry pooled = fields.get(entry);
+		if (pooled != null) {
+			return pooled;
+		}
+
+		ClassEntry parent = getClassEntry(entry.getParent().getFullName());
+		if (parent != entry.getParent()) {
+			entry = new FieldEntry(parent, entry.getName(), entry.getDesc());
+		}
+
+		FieldEntry existing = fields.putIfAbsent(entry, entry);
+		return existing != null ? existing : entry;
+	}
+}
@@ -37,7 +37,7 @@ public class FieldDefEntry extends FieldEntry implements DefEntry<ClassEntry> {
 	}
 
 	public static FieldDefEntry parse(ClassEntry owner, int access, String name, String desc, String signature) {
-		return new FieldDefEntry(owner, name, new TypeDescriptor(desc), Signature.createTypedSignature(signature), new AccessFlags(access), null);
+		return new FieldDefEntry(owner, name, TypeDescriptor.parse(desc), Signature.createTypedSignature(signature), new AccessFlags(access), null);
 	}
 
 	@Override
@@ -21,6 +21,7 @@ import javax.annotation.Nullable;
 
 public class FieldEntry extends ParentedEntry<ClassEntry> implements Comparable<FieldEntry> {
 	protected final TypeDescriptor desc;
+	private int hash;
 
 	public FieldEntry(ClassEntry parent, String name, TypeDescriptor desc) {
 		this(parent, name, desc, null);
@@ -36,7 +37,7 @@ public class FieldEntry extends ParentedEntry<ClassEntry> implements Comparable<
 	}
 
 	public static FieldEntry parse(String owner, String name, String desc) {
-		return new FieldEntry(new ClassEntry(owner), name, new TypeDescriptor(desc), null);
+		return new FieldEntry(new ClassEntry(owner), name, TypeDescriptor.parse(desc), null);
 	}
 
 	@Override
@@ -67,7 +68,11 @@ public class FieldEntry extends ParentedEntry<ClassEntry> implements Comparable<
 
 	@Override
 	public int hashCode() {
-		return Utils.combineHashesOrdered(this.parent, this.name, this.desc);
+		int hash = this.hash;
+		if (hash == 0) {
+			this.hash = hash = Utils.combineHashesOrdered(this.parent, this.name, this.desc);
+		}
+		return hash;
 	}
 
 	@Override
@@ -76,7 +81,7 @@ public class FieldEntry extends ParentedEntry<ClassEntry> implements Comparable<
 	}
 
 	public boolean equals(FieldEntry other) {
-		return this.parent.equals(other.parent) && name.equals(other.name) && desc.equals(other.desc);
+		return this == other || this.parent.equals(other.parent) && name.equals(other.name) && desc.equals(other.desc);
 	}
 
 	@Override
@@ -16,6 +16,7 @@ public class LocalVariableEntry extends ParentedEntry<MethodEntry> implements Co
 
 	protected final int index;
 	protected final boolean parameter;
+	private int hash;
 
 	public LocalVariableEntry(MethodEntry parent, int index, String name, boolean parameter, String javadoc) {
 		super(parent, name, javadoc);
@@ -64,7 +65,11 @@ public class LocalVariableEntry extends ParentedEntry<MethodEntry> implements Co
 
 	@Override
 	public int hashCode() {
-		return Utils.combineHashesOrdered(this.parent, this.index);
+		int hash = this.hash;
+		if (hash == 0) {
+			this.hash = hash = Utils.combineHashesOrdered(this.parent, this.index);
+		}
+		return hash;
 	}
 
 	@Override
@@ -22,6 +22,7 @@ import javax.annotation.Nullable;
 public class MethodEntry extends ParentedEntry<ClassEntry> implements Comparable<MethodEntry> {
 
 	protected final MethodDescriptor descriptor;
+	private int hash;
 
 	public MethodEntry(ClassEntry parent, String name, MethodDescriptor descriptor) {
 		this(parent, name, descriptor, null);
@@ -37,7 +38,7 @@ public class MethodEntry extends ParentedEntry<ClassEntry> implements Comparable
 	}
 
 	public static MethodEntry parse(String owner, String name, String desc) {
-		return new MethodEntry(new ClassEntry(owner), name, new MethodDescriptor(desc), null);
+		return new MethodEntry(new ClassEntry(owner), name, MethodDescriptor.parse(desc), null);
 	}
 
 	@Override
@@ -67,12 +68,18 @@ public class MethodEntry extends ParentedEntry<ClassEntry> implements Comparable
 
 	@Override
 	public MethodEntry withParent(ClassEntry parent) {
-		return new MethodEntry(new ClassEntry(parent.getFullName()), name, descriptor, javadocs);
+		// only definitions and documented classes need to be stripped down to a plain parent
+		ClassEntry plainParent = parent.getClass() == ClassEntry.class && parent.getJavadocs() == null ? parent : new ClassEntry(parent.getFullName());
+		return new MethodEntry(plainParent, name, descriptor, javadocs);
 	}
 
 	@Override
 	public int hashCode() {
-		return Utils.combineHashesOrdered(this.parent, this.name, this.descriptor);
+		int hash = this.hash;
+		if (hash == 0) {
+			this.hash = hash = Utils.combineHashesOrdered(this.parent, this.name, this.descriptor);
+		}
+		return hash;
 	}
 
 	@Override
@@ -81,7 +88,7 @@ public class MethodEntry extends ParentedEntry<ClassEntry> implements Comparable
 	}
 
 	public boolean equals(MethodEntry other) {
-		return this.parent.equals(other.getParent()) && this.name.equals(other.getName()) && this.descriptor.equals(other.getDesc());
+		return this == other || this.parent.equals(other.getParent()) && this.name.equals(other.getName()) && this.descriptor.equals(other.getDesc());
 	}
 
 	@Override
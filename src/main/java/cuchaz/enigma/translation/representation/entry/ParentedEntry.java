@@ -20,11 +20,17 @@ import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 
 import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
 
 public abstract class ParentedEntry<P extends Entry<?>> implements Entry<P> {
 	protected final P parent;
 	protected final String name;
 	protected final @Nullable String javadocs;
+	// built on first use, racing threads build equal lists
+	private List<Entry<?>> ancestry;
 
 	protected ParentedEntry(P parent, String name, String javadocs) {
 		this.parent = parent;
@@ -53,6 +59,15 @@ public abstract class ParentedEntry<P extends Entry<?>> implements Entry<P> {
 		return parent;
 	}
 
+	@Override
+	public List<Entry<?>> getAncestry() {
+		List<Entry<?>> ancestry = this.ancestry;
+		if (ancestry == null) {
+			this.ancestry = ancestry = new Ancestry(parent != null ? parent.getAncestry() : Collections.emptyList(), this);
+		}
+		return ancestry;
+	}
+
 	@Nullable
 	@Override
 	public String getJavadocs() {
@@ -79,4 +94,43 @@ public abstract class ParentedEntry<P extends Entry<?>> implements Entry<P> {
 		}
 		return null;
 	}
+
+	/**
+	 * The chain from the root down to an entry, as the chain of its parent with the entry appended.
+	 * Entries are immutable, so every entry below a parent shares the parent's chain instead of
+	 * copying it.
+	 */
+	private static final class Ancestry extends AbstractList<Entry<?>> implements RandomAccess {
+		private final List<Entry<?>> parentAncestry;
+		private final Entry<?> entry;
+		private final int size;
+
+		Ancestry(List<Entry<?>> parentAncestry, Entry<?> entry) {
+			this.parentAncestry = parentAncestry;
+			this.entry = entry;
+			this.size = parentAncestry.size() + 1;
+		}
+
+		@Override
+		public Entry<?> get(int index) {
+			List<Entry<?>> ancestry = this;
+			// walk up the shared chains until reaching the one that ends at the index
+			while (ancestry instanceof Ancestry) {
+				Ancestry node = (Ancestry) ancestry;
+				if (index == node.size - 1) {
+					return node.entry;
+				}
+				if (index < 0 || index >= node.size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
+				ancestry = node.parentAncestry;
+			}
+			return ancestry.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
 }
@@ -103,6 +103,11 @@ public class Utils {
 		return value == null ? defValue : Boolean.parseBoolean(value);
 	}
 
+	public static long getSystemPropertyAsLong(String property, long defValue) {
+		String value = System.getProperty(property);
+		return value == null ? defValue : Long.parseLong(value);
+	}
+
 	public static void delete(Path path) throws IOException {
 		if (Files.exists(path)) {
 			for (Path p : Files.walk(path).sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
@@ -12,17 +12,26 @@
 package cuchaz.enigma;
 
 import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.analysis.index.PackageVisibilityIndex;
+import cuchaz.enigma.analysis.index.ReferenceIndexingMode;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import org.junit.Test;
 
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static cuchaz.enigma.TestEntryFactory.newClass;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 
 public class PackageVisibilityIndexTest {
 
@@ -32,15 +41,41 @@ public class PackageVisibilityIndexTest {
 	private static final ClassEntry SAME_PACKAGE_CHILD_INNER = newClass("b$a");
 	private static final ClassEntry OTHER_PACKAGE_CHILD = newClass("c");
 	private static final ClassEntry OTHER_PACKAGE_CHILD_INNER = newClass("c$a");
+	private final ClassCache classCache;
 	private final JarIndex jarIndex;
 
 	public PackageVisibilityIndexTest() throws Exception {
-		ClassCache classCache = ClassCache.of(Paths.get("build/test-obf/packageAccess.jar"));
+		classCache = ClassCache.of(Paths.get("build/test-obf/packageAccess.jar"));
 		jarIndex = classCache.index(ProgressListener.none());
 	}
 
 	@Test
 	public void test() {
+		assertPartitions(jarIndex);
+	}
+
+	@Test
+	public void fastReferenceIndexing() {
+		assertPartitions(classCache.index(ReferenceIndexingMode.FAST, ProgressListener.none()));
+	}
+
+	@Test
+	public void fastIndexingFindsSameReferences() {
+		JarIndex fastIndex = classCache.index(ReferenceIndexingMode.FAST, ProgressListener.none());
+		for (MethodEntry method : jarIndex.getEntryIndex().getMethods()) {
+			assertThat(fastIndex.getReferenceIndex().getMethodsReferencedBy(method), containsInAnyOrder(jarIndex.getReferenceIndex().getMethodsReferencedBy(method).toArray()));
+			assertThat(getContexts(fastIndex.getReferenceIndex().getReferencesToMethod(method)), is(getContexts(jarIndex.getReferenceIndex().getReferencesToMethod(method))));
+		}
+		for (FieldEntry field : jarIndex.getEntryIndex().getFields()) {
+			assertThat(getContexts(fastIndex.getReferenceIndex().getReferencesToField(field)), is(getContexts(jarIndex.getReferenceIndex().getReferencesToField(field))));
+		}
+	}
+
+	private static Set<MethodDefEntry> getContexts(Collection<? extends EntryReference<?, MethodDefEntry>> references) {
+		return references.stream().map(reference -> reference.context).collect(Collectors.toSet());
+	}
+
+	private static void assertPartitions(JarIndex jarIndex) {
 		PackageVisibilityIndex visibilityIndex = jarIndex.getPackageVisibilityIndex();
 		assertThat(visibilityIndex.getPartition(BASE), containsInAnyOrder(BASE, SAME_PACKAGE_CHILD, SAME_PACKAGE_CHILD_INNER));
 		System.out.println(visibilityIndex.getPartitions());
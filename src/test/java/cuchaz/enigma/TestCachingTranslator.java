@@ -0,0 +1,68 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.CachingTranslator;
+import cuchaz.enigma.translation.MappingTranslator;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.VoidEntryResolver;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestCachingTranslator {
+	private final ClassEntry outerClass = newClass("a");
+	private final ClassEntry innerClass = newClass("a$b");
+	private final ClassEntry otherClass = newClass("c");
+	private final MethodEntry method = newMethod(otherClass, "d", "(La$b;)Lc;");
+
+	@Test
+	public void invalidateDependents() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(otherClass, new EntryMapping("Other"));
+		CachingTranslator translator = new CachingTranslator(mappings, VoidEntryResolver.INSTANCE);
+
+		MethodEntry translated = translator.translate(method);
+		assertThat(translated.toString(), is("Other.d(La$b;)LOther;"));
+		assertThat(translator.translate(method), is(sameInstance(translated)));
+
+		// the method descriptor depends on the outer class through the inner class
+		mappings.insert(outerClass, new EntryMapping("Outer"));
+		translator.invalidate(outerClass);
+		assertThat(translator.translate(method).toString(), is("Other.d(LOuter$b;)LOther;"));
+
+		// renaming the method only drops the translations below the method
+		MethodDescriptor descriptor = translator.translate(method.getDesc());
+		mappings.insert(method, new EntryMapping("run"));
+		translator.invalidate(method);
+		assertThat(translator.translate(method).toString(), is("Other.run(LOuter$b;)LOther;"));
+		assertThat(translator.translate(method.getDesc()), is(sameInstance(descriptor)));
+
+		// a class invalidates everything declared in it
+		mappings.remove(method);
+		translator.invalidate(otherClass);
+		assertThat(translator.translate(method).toString(), is("Other.d(LOuter$b;)LOther;"));
+	}
+
+	@Test
+	public void matchesUncachedTranslation() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		CachingTranslator translator = new CachingTranslator(mappings, VoidEntryResolver.INSTANCE);
+		MappingTranslator uncached = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
+
+		translator.translate(method);
+		mappings.insert(innerClass, new EntryMapping("Inner"));
+		mappings.insert(otherClass, new EntryMapping("pkg/Other"));
+		translator.invalidate(innerClass);
+		translator.invalidate(otherClass);
+
+		assertThat(translator.translate(method), is(uncached.translate(method)));
+		assertThat(translator.translate(method).toString(), is(uncached.translate(method).toString()));
+		assertThat(translator.translate(innerClass).getFullName(), is("a$Inner"));
+	}
+}
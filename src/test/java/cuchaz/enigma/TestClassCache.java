@@ -0,0 +1,135 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.analysis.ClassCache;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestClassCache {
+
+	private static final Path JAR = Paths.get("build/test-obf/translation.jar");
+
+	@Test
+	public void deflatedEntries() throws Exception {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			assertMatchesJar(classCache, JAR);
+		}
+	}
+
+	@Test
+	public void storedEntries() throws Exception {
+		Path stored = Files.createTempFile("enigma-stored", ".jar");
+		try {
+			writeStoredCopy(JAR, stored);
+			try (ClassCache classCache = ClassCache.of(stored)) {
+				assertMatchesJar(classCache, stored);
+			}
+		} finally {
+			Files.delete(stored);
+		}
+	}
+
+	@Test
+	public void missingClass() throws Exception {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			assertThat(classCache.getClassNode("does/not/Exist"), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void cacheStatistics() throws Exception {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			classCache.getClassNode("a");
+			classCache.getClassNode("a");
+
+			assertThat(classCache.getNodeCacheStats().missCount(), is(1L));
+			assertThat(classCache.getNodeCacheStats().hitCount(), is(1L));
+			assertThat(classCache.getBytesCacheStats().missCount(), is(1L));
+
+			// visiting the whole jar is not interactive use, and must not skew the statistics
+			classCache.visit(() -> new ClassNode(), 0);
+			classCache.visitParallel(() -> new ClassNode(), 0);
+			assertThat(classCache.getNodeCacheStats().requestCount(), is(2L));
+			assertThat(classCache.getBytesCacheStats().requestCount(), is(1L));
+		}
+	}
+
+	@Test
+	public void cacheBudget() throws Exception {
+		// too small to hold any class, so every lookup parses again
+		try (ClassCache classCache = ClassCache.of(JAR, 16)) {
+			ClassNode first = classCache.getClassNode("a");
+			ClassNode second = classCache.getClassNode("a");
+
+			assertThat(second, is(not(sameInstance(first))));
+			assertThat(second.name, is("a"));
+			assertThat(classCache.getNodeCacheStats().evictionCount(), is(2L));
+		}
+	}
+
+	private static void assertMatchesJar(ClassCache classCache, Path path) throws Exception {
+		Set<String> expectedNames = new HashSet<>();
+		try (JarFile jar = new JarFile(path.toFile())) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				if (name.endsWith(".class")) {
+					expectedNames.add(name.substring(0, name.length() - ".class".length()));
+				}
+			}
+		}
+
+		assertThat(expectedNames, is(not(empty())));
+		assertThat(classCache.getClassCount(), is(expectedNames.size()));
+
+		for (String name : expectedNames) {
+			ClassNode node = classCache.getClassNode(name);
+			assertThat(node, is(notNullValue()));
+			assertThat(node.name, is(name));
+		}
+	}
+
+	private static void writeStoredCopy(Path from, Path to) throws Exception {
+		try (JarFile jar = new JarFile(from.toFile()); OutputStream out = Files.newOutputStream(to); JarOutputStream jarOut = new JarOutputStream(out)) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+
+				byte[] bytes;
+				try (InputStream in = jar.getInputStream(entry)) {
+					bytes = ByteStreams.toByteArray(in);
+				}
+
+				CRC32 crc = new CRC32();
+				crc.update(bytes);
+
+				JarEntry storedEntry = new JarEntry(entry.getName());
+				storedEntry.setMethod(ZipEntry.STORED);
+				storedEntry.setSize(bytes.length);
+				storedEntry.setCompressedSize(bytes.length);
+				storedEntry.setCrc(crc.getValue());
+
+				jarOut.putNextEntry(storedEntry);
+				jarOut.write(bytes);
+				jarOut.closeEntry();
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.ClasspathClassProvider;
+import cuchaz.enigma.analysis.index.InheritanceIndex;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.ReferenceIndexingMode;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static cuchaz.enigma.TestEntryFactory.newMethod;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestClasspathIndex {
+
+	private static final Path JAR = Paths.get("build/test-obf/inheritanceTree.jar");
+
+	private final ClassEntry baseClass = newClass("a");
+	private final ClassEntry subClassA = newClass("b");
+	private final ClassEntry subClassAA = newClass("d");
+	private final ClassEntry subClassB = newClass("c");
+
+	private final MethodEntry getNameAA = newMethod(subClassAA, "a", "()Ljava/lang/String;");
+	private final MethodEntry doBaseThingsAA = newMethod(subClassAA, "a", "()V");
+	private final MethodEntry doBaseThingsB = newMethod(subClassB, "a", "()V");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path mainJar;
+	private Path libraryJar;
+
+	@Before
+	public void splitJar() throws Exception {
+		// the base class and one subclass move into a library
+		Predicate<String> inLibrary = name -> name.equals("a.class") || name.equals("b.class");
+		mainJar = folder.newFile("main.jar").toPath();
+		libraryJar = folder.newFile("library.jar").toPath();
+		copyEntries(JAR, mainJar, inLibrary.negate());
+		copyEntries(JAR, libraryJar, inLibrary);
+	}
+
+	@Test
+	public void withoutLibraries() throws Exception {
+		try (ClassCache classCache = ClassCache.of(mainJar)) {
+			JarIndex index = classCache.index(ProgressListener.none());
+			InheritanceIndex inheritanceIndex = index.getInheritanceIndex();
+
+			assertThat(index.getLibraryIndex(), is(nullValue()));
+			assertThat(inheritanceIndex.computeClassRelation(subClassAA, baseClass), is(InheritanceIndex.Relation.UNKNOWN));
+			assertThat(inheritanceIndex.computeClassRelation(subClassAA, subClassB), is(InheritanceIndex.Relation.UNKNOWN));
+
+			assertThat(inheritanceIndex.getAncestors(subClassAA), contains(subClassA));
+			assertThat(index.getEntryResolver().resolveFirstEntry(getNameAA, ResolutionStrategy.RESOLVE_ROOT), is(getNameAA));
+			assertThat(index.getMethodGroupIndex().getGroup(doBaseThingsB), contains(doBaseThingsB));
+		}
+	}
+
+	@Test
+	public void withLibraries() throws Exception {
+		try (ClassCache classCache = ClassCache.of(mainJar); ClasspathClassProvider libraries = new ClasspathClassProvider(Collections.singletonList(libraryJar))) {
+			JarIndex index = classCache.index(ReferenceIndexingMode.FULL, libraries, ProgressListener.none());
+			InheritanceIndex inheritanceIndex = index.getInheritanceIndex();
+
+			assertThat(inheritanceIndex.computeClassRelation(subClassAA, baseClass), is(InheritanceIndex.Relation.RELATED));
+			assertThat(inheritanceIndex.computeClassRelation(subClassAA, subClassA), is(InheritanceIndex.Relation.RELATED));
+			assertThat(inheritanceIndex.computeClassRelation(subClassAA, subClassB), is(InheritanceIndex.Relation.UNRELATED));
+
+			// the hierarchy, resolution and method groups all reach into the library
+			assertThat(inheritanceIndex.getAncestors(subClassAA), containsInAnyOrder(subClassA, baseClass));
+			assertThat(inheritanceIndex.getParents(subClassA), contains(baseClass));
+			assertThat(index.getEntryResolver().resolveFirstEntry(getNameAA, ResolutionStrategy.RESOLVE_ROOT), is(getNameAA.withParent(baseClass)));
+			assertThat(index.getMethodGroupIndex().getGroup(doBaseThingsB), containsInAnyOrder(doBaseThingsB, doBaseThingsAA));
+
+			// library classes stay out of the jar's own index
+			assertThat(index.getEntryIndex().getClasses(), not(hasItems(baseClass, subClassA)));
+			assertThat(index.getLibraryIndex().getEntryIndex().getClasses(), containsInAnyOrder(baseClass, subClassA));
+			assertThat(index.getLibraryIndex().getReferenceIndex().getReferencesToClass(baseClass), is(empty()));
+		}
+	}
+
+	@Test
+	public void firstJarWins() throws Exception {
+		try (ClasspathClassProvider libraries = new ClasspathClassProvider(Arrays.asList(libraryJar, JAR))) {
+			// found in the first jar, so the second one never has to be opened
+			assertThat(libraries.getClassNode("a"), is(notNullValue()));
+			assertThat(libraries.getClassNode("c").name, is("c"));
+			assertThat(libraries.getClassNode("does/not/Exist"), is(nullValue()));
+		}
+	}
+
+	private static void copyEntries(Path from, Path to, Predicate<String> filter) throws Exception {
+		try (JarFile jar = new JarFile(from.toFile()); OutputStream out = Files.newOutputStream(to); JarOutputStream jarOut = new JarOutputStream(out)) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				if (!filter.test(entry.getName())) {
+					continue;
+				}
+
+				jarOut.putNextEntry(new JarEntry(entry.getName()));
+				try (InputStream in = jar.getInputStream(entry)) {
+					ByteStreams.copy(in, jarOut);
+				}
+				jarOut.closeEntry();
+			}
+		}
+	}
+}
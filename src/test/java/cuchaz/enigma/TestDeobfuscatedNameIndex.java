@@ -0,0 +1,76 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.mapping.DeobfuscatedNameIndex;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestDeobfuscatedNameIndex {
+	private final ClassEntry outerClass = newClass("a");
+	private final ClassEntry innerClass = newClass("a$b");
+	private final ClassEntry otherClass = newClass("c");
+	private final FieldEntry field = newField(outerClass, "d", "I");
+	private final MethodEntry method = newMethod(outerClass, "e", "()V");
+
+	@Test
+	public void indexInitialMappings() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(outerClass, new EntryMapping("Outer"));
+		mappings.insert(innerClass, new EntryMapping("value"));
+		mappings.insert(field, new EntryMapping("value"));
+		DeobfuscatedNameIndex index = new DeobfuscatedNameIndex(mappings);
+
+		assertThat(index.getEntries(null, "Outer"), contains(outerClass));
+		assertThat(index.getEntries(outerClass, "value"), containsInAnyOrder(innerClass, field));
+		assertThat(index.getEntries(otherClass, "value"), is(empty()));
+		assertThat(index.getEntries("value"), containsInAnyOrder(innerClass, field));
+		assertThat(index.getEntries("a"), is(empty()));
+	}
+
+	@Test
+	public void updateOnChange() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		DeobfuscatedNameIndex index = new DeobfuscatedNameIndex(mappings);
+
+		index.update(method, new EntryMapping("run"));
+		index.update(field, new EntryMapping("run"));
+		assertThat(index.getEntries(outerClass, "run"), containsInAnyOrder(method, field));
+
+		index.update(method, new EntryMapping("start"));
+		assertThat(index.getEntries(outerClass, "run"), contains(field));
+		assertThat(index.getEntries(outerClass, "start"), contains(method));
+		assertThat(index.getName(method), is("start"));
+
+		index.update(method, null);
+		assertThat(index.getEntries("start"), is(empty()));
+		assertThat(index.getName(method), is(nullValue()));
+	}
+
+	@Test
+	public void refreshSubtree() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(outerClass, new EntryMapping("Outer"));
+		mappings.insert(field, new EntryMapping("count"));
+		mappings.insert(otherClass, new EntryMapping("Other"));
+		DeobfuscatedNameIndex index = new DeobfuscatedNameIndex(mappings);
+
+		// the mappings below the class change without the index being told
+		mappings.remove(field);
+		mappings.remove(outerClass);
+		mappings.insert(method, new EntryMapping("run"));
+		index.refresh(outerClass, mappings);
+
+		assertThat(index.getEntries("Outer"), is(empty()));
+		assertThat(index.getEntries("count"), is(empty()));
+		assertThat(index.getEntries(outerClass, "run"), contains(method));
+		assertThat(index.getEntries(null, "Other"), contains(otherClass));
+	}
+}
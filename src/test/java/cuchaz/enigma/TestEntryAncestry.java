@@ -0,0 +1,46 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.util.List;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestEntryAncestry {
+	private final ClassEntry outerClass = newClass("a");
+	private final ClassEntry innerClass = new ClassEntry(outerClass, "b");
+	private final MethodEntry method = newMethod(innerClass, "c", "()V");
+	private final LocalVariableEntry variable = new LocalVariableEntry(method, 1, "d", true, null);
+
+	@Test
+	public void rootFirst() {
+		assertThat(outerClass.getAncestry(), contains(outerClass));
+		assertThat(variable.getAncestry(), contains(outerClass, innerClass, method, variable));
+		assertThat(variable.getAncestry().get(1), is(sameInstance(innerClass)));
+		assertThat(variable.getAncestry().indexOf(method), is(2));
+	}
+
+	@Test
+	public void sharesParentChain() {
+		List<Entry<?>> ancestry = variable.getAncestry();
+		assertThat(variable.getAncestry(), is(sameInstance(ancestry)));
+		assertThat(ancestry.subList(0, 3), is(method.getAncestry()));
+		assertThat(ancestry.get(0), is(sameInstance(method.getAncestry().get(0))));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void indexOutOfBounds() {
+		method.getAncestry().get(3);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void immutable() {
+		method.getAncestry().add(variable);
+	}
+}
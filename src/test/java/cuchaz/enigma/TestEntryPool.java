@@ -0,0 +1,71 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.EntryPool;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestEntryPool {
+
+	@Test
+	public void classes() {
+		EntryPool pool = new EntryPool();
+		ClassEntry inner = pool.getClassEntry("a/b$c");
+
+		assertThat(pool.getClassEntry("a/b$c"), is(sameInstance(inner)));
+		assertThat(inner.getOuterClass(), is(sameInstance(pool.getClassEntry("a/b"))));
+		assertThat(inner, is(new ClassEntry("a/b$c")));
+	}
+
+	@Test
+	public void members() {
+		EntryPool pool = new EntryPool();
+		MethodEntry method = pool.getMethodEntry("a", "b", "(La;)V");
+
+		assertThat(pool.getMethodEntry("a", "b", "(La;)V"), is(sameInstance(method)));
+		assertThat(method.getParent(), is(sameInstance(pool.getClassEntry("a"))));
+		assertThat(pool.getFieldEntry("a", "c", "I"), is(sameInstance(pool.getFieldEntry("a", "c", "I"))));
+
+		// entries built elsewhere resolve to the pooled instance, definitions and documented entries are kept
+		assertThat(pool.intern(MethodEntry.parse("a", "b", "(La;)V")), is(sameInstance(method)));
+		MethodEntry documented = new MethodEntry(new ClassEntry("a"), "b", new MethodDescriptor("(La;)V"), "docs");
+		assertThat(pool.intern(documented), is(sameInstance(documented)));
+		MethodDefEntry definition = MethodDefEntry.parse(new ClassEntry("a"), 0, "b", "(La;)V", null);
+		assertThat(pool.intern(definition), is(sameInstance(definition)));
+	}
+
+	@Test
+	public void indexSharesReferencedEntries() throws Exception {
+		try (ClassCache classCache = ClassCache.of(Paths.get("build/test-obf/inheritanceTree.jar"))) {
+			JarIndex index = classCache.index(ProgressListener.none());
+
+			Map<MethodEntry, MethodEntry> seen = new IdentityHashMap<>();
+			for (MethodEntry method : index.getEntryIndex().getMethods()) {
+				for (MethodEntry referenced : index.getReferenceIndex().getMethodsReferencedBy(method)) {
+					seen.put(referenced, referenced);
+				}
+				for (EntryReference<MethodEntry, MethodDefEntry> reference : index.getReferenceIndex().getReferencesToMethod(method)) {
+					seen.put(reference.entry, reference.entry);
+				}
+			}
+
+			// every distinct plain entry appears as a single instance
+			long instances = seen.keySet().stream().filter(entry -> entry.getClass() == MethodEntry.class).count();
+			long distinct = seen.keySet().stream().filter(entry -> entry.getClass() == MethodEntry.class).distinct().count();
+			assertThat(instances, is(greaterThan(0L)));
+			assertThat(instances, is(distinct));
+		}
+	}
+}
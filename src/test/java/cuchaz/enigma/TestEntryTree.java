@@ -0,0 +1,212 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.tree.ConcurrentEntryTree;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.PersistentEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestEntryTree {
+	private final ClassEntry outerClass = newClass("a");
+	private final ClassEntry innerClass = newClass("a$b");
+	private final MethodEntry method = newMethod(innerClass, "c", "()V");
+	private final FieldEntry field = newField(outerClass, "d", "I");
+	private final ClassEntry otherClass = newClass("e");
+
+	private List<EntryTree<String>> createTrees() {
+		List<EntryTree<String>> trees = Arrays.asList(new HashEntryTree<>(), new PersistentEntryTree<>(), new ConcurrentEntryTree<>());
+		for (EntryTree<String> tree : trees) {
+			tree.insert(outerClass, "A");
+			tree.insert(method, "C");
+			tree.insert(field, "D");
+			tree.insert(otherClass, "E");
+		}
+		return trees;
+	}
+
+	@Test
+	public void iterateDepthFirst() {
+		for (EntryTree<String> tree : createTrees()) {
+			List<Entry<?>> entries = new ArrayList<>();
+			for (EntryTreeNode<String> node : tree) {
+				entries.add(node.getEntry());
+			}
+
+			assertThat(entries, containsInAnyOrder(outerClass, innerClass, method, field, otherClass));
+			assertThat(entries.indexOf(outerClass), is(lessThan(entries.indexOf(innerClass))));
+			assertThat(entries.indexOf(innerClass), is(lessThan(entries.indexOf(method))));
+			assertThat(entries.indexOf(outerClass), is(lessThan(entries.indexOf(field))));
+		}
+	}
+
+	@Test
+	public void streamInParallel() {
+		for (EntryTree<String> tree : createTrees()) {
+			List<Entry<?>> entries = StreamSupport.stream(tree.spliterator(), true)
+					.map(EntryTreeNode::getEntry)
+					.collect(Collectors.toList());
+			assertThat(entries, containsInAnyOrder(outerClass, innerClass, method, field, otherClass));
+
+			assertThat(tree.getAllEntries().collect(Collectors.toList()), containsInAnyOrder(outerClass, method, field, otherClass));
+		}
+	}
+
+	@Test
+	public void removeDeadNodes() {
+		for (EntryTree<String> tree : createTrees()) {
+			assertThat(tree.remove(method), is("C"));
+			assertThat(tree.findNode(innerClass), is(nullValue()));
+			assertThat(tree.getChildren(outerClass), contains(field));
+
+			tree.insert(field, null);
+			tree.insert(outerClass, null);
+			assertThat(tree.findNode(outerClass), is(nullValue()));
+			assertThat(tree.getAllEntries().collect(Collectors.toList()), contains(otherClass));
+		}
+	}
+
+	@Test
+	public void snapshots() {
+		PersistentEntryTree<String> tree = new PersistentEntryTree<>();
+		tree.insert(outerClass, "A");
+		tree.insert(method, "C");
+		tree.insert(otherClass, "E");
+
+		PersistentEntryTree<String> snapshot = tree.snapshot();
+		tree.insert(method, "C2");
+		tree.insert(field, "D");
+		tree.remove(otherClass);
+
+		assertThat(snapshot.get(method), is("C"));
+		assertThat(snapshot.get(field), is(nullValue()));
+		assertThat(snapshot.get(otherClass), is("E"));
+		assertThat(tree.get(method), is("C2"));
+		assertThat(tree.get(otherClass), is(nullValue()));
+
+		assertThat(tree.getChangedEntries(snapshot), containsInAnyOrder(method, field, otherClass));
+		assertThat(tree.getChangedEntries(tree.snapshot()), is(empty()));
+	}
+
+	@Test
+	public void manyEntries() {
+		PersistentEntryTree<String> tree = new PersistentEntryTree<>();
+		// "Aa" and "BB" have the same hash code, so every pair of classes below collides
+		List<ClassEntry> classes = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			classes.add(newClass("Aa" + i));
+			classes.add(newClass("BB" + i));
+		}
+
+		for (ClassEntry classEntry : classes) {
+			tree.insert(classEntry, classEntry.getName());
+		}
+		PersistentEntryTree<String> snapshot = tree.snapshot();
+		for (int i = 0; i < classes.size(); i += 2) {
+			tree.remove(classes.get(i));
+		}
+
+		assertThat(tree.getAllEntries().count(), is((long) classes.size() / 2));
+		assertThat(snapshot.getAllEntries().count(), is((long) classes.size()));
+		for (int i = 0; i < classes.size(); i++) {
+			ClassEntry classEntry = classes.get(i);
+			assertThat(tree.get(classEntry), is(i % 2 == 0 ? nullValue() : equalTo(classEntry.getName())));
+			assertThat(snapshot.get(classEntry), is(classEntry.getName()));
+		}
+		assertThat(tree.getChangedEntries(snapshot).size(), is(classes.size() / 2));
+	}
+
+	@Test
+	public void concurrentWrites() {
+		EntryTree<String> tree = new ConcurrentEntryTree<>();
+		List<ClassEntry> classes = IntStream.range(0, 8).mapToObj(i -> newClass("c" + i)).collect(Collectors.toList());
+
+		// every method is inserted and removed again, while the classes are written to in parallel
+		IntStream.range(0, 4000).parallel().forEach(i -> {
+			MethodEntry methodEntry = newMethod(classes.get(i % classes.size()), "m" + i, "()V");
+			tree.insert(methodEntry, "M" + i);
+			if (i % 2 == 0) {
+				tree.remove(methodEntry);
+			}
+		});
+
+		assertThat(tree.getAllEntries().count(), is(2000L));
+		for (int i = 0; i < classes.size(); i++) {
+			// only the classes that every method was removed from again are pruned
+			assertThat(tree.getChildren(classes.get(i)).size(), is(i % 2 == 0 ? 0 : 500));
+			assertThat(tree.findNode(classes.get(i)), is(i % 2 == 0 ? nullValue() : notNullValue()));
+		}
+		assertThat(tree.get(newMethod(classes.get(1), "m1", "()V")), is("M1"));
+		assertThat(tree.get(newMethod(classes.get(2), "m2", "()V")), is(nullValue()));
+	}
+
+	@Test
+	public void deltasFromSnapshots() {
+		DeltaTrackingTree<EntryMapping> tree = new DeltaTrackingTree<>(new PersistentEntryTree<>());
+		tree.insert(outerClass, new EntryMapping("A"));
+		tree.insert(method, new EntryMapping("C"));
+		assertThat(tree.isDirty(), is(true));
+
+		MappingDelta<EntryMapping> first = tree.takeDelta();
+		assertThat(first.getChanges().getAllEntries().collect(Collectors.toList()), containsInAnyOrder(outerClass, method));
+		assertThat(first.getBaseMappings().isEmpty(), is(true));
+		assertThat(tree.isDirty(), is(false));
+
+		// a javadoc is not part of a mapping's equality, but still has to be saved
+		tree.insert(method, new EntryMapping("C", "docs"));
+		tree.insert(otherClass, new EntryMapping("E"));
+		tree.remove(otherClass);
+		tree.trackChange(field);
+
+		MappingDelta<EntryMapping> second = tree.takeDelta();
+		assertThat(second.getChanges().getAllEntries().collect(Collectors.toList()), containsInAnyOrder(method, field));
+		assertThat(second.getBaseMappings().get(method).getJavadoc(), is(nullValue()));
+		assertThat(tree.isDirty(), is(false));
+	}
+
+	@Test
+	public void deltasWhileUpdating() {
+		List<EntryTree<EntryMapping>> delegates = Arrays.asList(new HashEntryTree<>(), new PersistentEntryTree<>(), new ConcurrentEntryTree<>());
+		for (EntryTree<EntryMapping> delegate : delegates) {
+			DeltaTrackingTree<EntryMapping> tree = new DeltaTrackingTree<>(delegate);
+			List<MethodEntry> methods = IntStream.range(0, 4000)
+					.mapToObj(i -> newMethod(newClass("c" + i % 16), "m" + i, "()V"))
+					.collect(Collectors.toList());
+
+			CompletableFuture<Void> updates = CompletableFuture.runAsync(() -> methods.parallelStream()
+					.forEach(methodEntry -> tree.insert(methodEntry, new EntryMapping(methodEntry.getName() + "_"))));
+
+			// every update has to end up in exactly one of the deltas taken while updating
+			Set<Entry<?>> saved = new HashSet<>();
+			while (!updates.isDone()) {
+				tree.takeDelta().getChanges().getAllEntries().forEach(entry -> assertThat(saved.add(entry), is(true)));
+			}
+			updates.join();
+			tree.takeDelta().getChanges().getAllEntries().forEach(entry -> assertThat(saved.add(entry), is(true)));
+
+			assertThat(saved, is(new HashSet<>(methods)));
+			assertThat(tree.isDirty(), is(false));
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.index.EntryIndex;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.JarIndexCache;
+import cuchaz.enigma.analysis.index.ReferenceIndex;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.I18n;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestJarIndexCache {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void translation() throws Exception {
+		assertRoundTrip(Paths.get("build/test-obf/translation.jar"));
+	}
+
+	@Test
+	public void inheritanceTree() throws Exception {
+		assertRoundTrip(Paths.get("build/test-obf/inheritanceTree.jar"));
+	}
+
+	@Test
+	public void packageAccess() throws Exception {
+		assertRoundTrip(Paths.get("build/test-obf/packageAccess.jar"));
+	}
+
+	@Test
+	public void reindexChangedClass() throws Exception {
+		// give the root of the hierarchy a new method, which its subclasses now inherit
+		assertReindexMatches(Paths.get("build/test-obf/inheritanceTree.jar"), (name, bytes) -> {
+			if (!name.equals("a.class")) {
+				return bytes;
+			}
+
+			ClassWriter writer = new ClassWriter(0);
+			new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM8, writer) {
+				@Override
+				public void visitEnd() {
+					MethodVisitor method = super.visitMethod(Opcodes.ACC_PUBLIC, "added", "()V", null, null);
+					method.visitCode();
+					method.visitInsn(Opcodes.RETURN);
+					method.visitMaxs(0, 1);
+					method.visitEnd();
+					super.visitEnd();
+				}
+			}, 0);
+			return writer.toByteArray();
+		});
+	}
+
+	@Test
+	public void reindexRemovedClass() throws Exception {
+		assertReindexMatches(Paths.get("build/test-obf/translation.jar"), (name, bytes) -> name.equals("b.class") ? null : bytes);
+	}
+
+	private void assertReindexMatches(Path jar, BiFunction<String, byte[], byte[]> change) throws Exception {
+		Path directory = folder.newFolder().toPath();
+		Path input = folder.newFile("input.jar").toPath();
+		Files.copy(jar, input, StandardCopyOption.REPLACE_EXISTING);
+		JarIndexCache cache = new JarIndexCache(directory);
+
+		try (ClassCache classCache = ClassCache.of(input)) {
+			cache.index(input, classCache, ProgressListener.none());
+		}
+
+		writeChangedCopy(jar, input, change);
+
+		try (ClassCache classCache = ClassCache.of(input)) {
+			RecordingProgress progress = new RecordingProgress();
+			JarIndex reindexed = cache.index(input, classCache, progress);
+			assertThat(progress.messages, hasItem(I18n.translate("progress.jar.indexing.snapshot")));
+
+			assertSameIndex(reindexed, classCache.index(ProgressListener.none()));
+		}
+
+		// the snapshot of the jar before the change was replaced
+		try (Stream<Path> snapshots = Files.list(directory)) {
+			assertThat(snapshots.filter(path -> path.toString().endsWith(".index")).count(), is(1L));
+		}
+	}
+
+	private static void writeChangedCopy(Path from, Path to, BiFunction<String, byte[], byte[]> change) throws Exception {
+		try (JarFile jar = new JarFile(from.toFile()); OutputStream out = Files.newOutputStream(to); JarOutputStream jarOut = new JarOutputStream(out)) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+
+				byte[] bytes;
+				try (InputStream in = jar.getInputStream(entry)) {
+					bytes = change.apply(entry.getName(), ByteStreams.toByteArray(in));
+				}
+
+				if (bytes != null) {
+					jarOut.putNextEntry(new JarEntry(entry.getName()));
+					jarOut.write(bytes);
+					jarOut.closeEntry();
+				}
+			}
+		}
+	}
+
+	private void assertRoundTrip(Path jar) throws Exception {
+		Path directory = folder.newFolder().toPath();
+		JarIndexCache cache = new JarIndexCache(directory);
+
+		try (ClassCache classCache = ClassCache.of(jar)) {
+			RecordingProgress firstProgress = new RecordingProgress();
+			JarIndex built = cache.index(jar, classCache, firstProgress);
+			assertThat(firstProgress.messages, not(hasItem(I18n.translate("progress.jar.indexing.snapshot"))));
+			try (Stream<Path> snapshots = Files.list(directory)) {
+				assertThat(snapshots.filter(path -> path.toString().endsWith(".index")).count(), is(1L));
+			}
+
+			RecordingProgress secondProgress = new RecordingProgress();
+			JarIndex loaded = cache.index(jar, classCache, secondProgress);
+			assertThat(secondProgress.messages, contains(I18n.translate("progress.jar.indexing.snapshot")));
+
+			assertSameIndex(loaded, built);
+		}
+	}
+
+	private static void assertSameIndex(JarIndex actual, JarIndex expected) {
+		EntryIndex expectedEntries = expected.getEntryIndex();
+		EntryIndex actualEntries = actual.getEntryIndex();
+		assertThat(new HashSet<>(actualEntries.getClasses()), is(new HashSet<>(expectedEntries.getClasses())));
+		assertThat(new HashSet<>(actualEntries.getMethods()), is(new HashSet<>(expectedEntries.getMethods())));
+		assertThat(new HashSet<>(actualEntries.getFields()), is(new HashSet<>(expectedEntries.getFields())));
+
+		ReferenceIndex expectedReferences = expected.getReferenceIndex();
+		ReferenceIndex actualReferences = actual.getReferenceIndex();
+
+		for (ClassEntry entry : expectedEntries.getClasses()) {
+			assertThat(actualEntries.getClassAccess(entry), is(expectedEntries.getClassAccess(entry)));
+			assertThat(actualEntries.getDefinition(entry).getSuperClass(), is(expectedEntries.getDefinition(entry).getSuperClass()));
+			assertThat(actualEntries.getDefinition(entry).getInterfaces(), is(expectedEntries.getDefinition(entry).getInterfaces()));
+			assertThat(new HashSet<>(actual.getInheritanceIndex().getParents(entry)), is(new HashSet<>(expected.getInheritanceIndex().getParents(entry))));
+			assertThat(new HashSet<>(actual.getInheritanceIndex().getChildren(entry)), is(new HashSet<>(expected.getInheritanceIndex().getChildren(entry))));
+			assertThat(actual.getPackageVisibilityIndex().getPartition(entry), is(expected.getPackageVisibilityIndex().getPartition(entry)));
+
+			assertSameReferences(actualReferences.getReferencesToClass(entry), expectedReferences.getReferencesToClass(entry));
+			assertSameReferences(actualReferences.getFieldTypeReferencesToClass(entry), expectedReferences.getFieldTypeReferencesToClass(entry));
+			assertSameReferences(actualReferences.getMethodTypeReferencesToClass(entry), expectedReferences.getMethodTypeReferencesToClass(entry));
+		}
+
+		for (MethodEntry entry : expectedEntries.getMethods()) {
+			assertThat(actualEntries.getMethodAccess(entry), is(expectedEntries.getMethodAccess(entry)));
+			assertThat(new HashSet<>(actualReferences.getMethodsReferencedBy(entry)), is(new HashSet<>(expectedReferences.getMethodsReferencedBy(entry))));
+			assertSameReferences(actualReferences.getReferencesToMethod(entry), expectedReferences.getReferencesToMethod(entry));
+		}
+
+		for (FieldEntry entry : expectedEntries.getFields()) {
+			assertThat(actualEntries.getFieldAccess(entry), is(expectedEntries.getFieldAccess(entry)));
+			assertSameReferences(actualReferences.getReferencesToField(entry), expectedReferences.getReferencesToField(entry));
+		}
+
+		assertThat(actual.getBridgeMethodIndex().getBridgeToSpecialized(), is(expected.getBridgeMethodIndex().getBridgeToSpecialized()));
+		assertThat(actual.getBridgeMethodIndex().getSpecializedToBridge(), is(expected.getBridgeMethodIndex().getSpecializedToBridge()));
+		assertThat(actual.getPackageVisibilityIndex().getPartitions().size(), is(expected.getPackageVisibilityIndex().getPartitions().size()));
+	}
+
+	private static void assertSameReferences(Collection<? extends EntryReference<?, ?>> actual, Collection<? extends EntryReference<?, ?>> expected) {
+		assertThat(describe(actual), is(describe(expected)));
+	}
+
+	private static Set<String> describe(Collection<? extends EntryReference<?, ?>> references) {
+		// reference equality ignores the target type and naming, so compare those explicitly
+		return references.stream()
+				.map(reference -> reference + " " + reference.targetType + " " + reference.isNamed())
+				.collect(Collectors.toSet());
+	}
+
+	private static class RecordingProgress implements ProgressListener {
+		final List<String> messages = new ArrayList<>();
+
+		@Override
+		public void init(int totalWork, String title) {
+		}
+
+		@Override
+		public void step(int numDone, String message) {
+			messages.add(message);
+		}
+	}
+}
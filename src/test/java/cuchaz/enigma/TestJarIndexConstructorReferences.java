@@ -14,6 +14,8 @@ package cuchaz.enigma;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.ReferencePage;
+import cuchaz.enigma.analysis.index.ReferenceQuery;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
@@ -21,6 +23,7 @@ import org.junit.Test;
 
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.stream.Collectors;
 
 import static cuchaz.enigma.TestEntryFactory.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -89,6 +92,32 @@ public class TestJarIndexConstructorReferences {
 		));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void pagedReferences() {
+		MethodEntry source = newMethod(subClass, "<init>", "(I)V");
+		ReferenceQuery<MethodEntry, MethodDefEntry> query = index.getReferenceIndex().queryReferencesToMethod(source).sortedByContext();
+		assertThat(query.count(), is(3));
+
+		ReferencePage<MethodEntry, MethodDefEntry> first = query.page(0, 2);
+		assertThat(first.getReferences(), contains(
+				newBehaviorReferenceByMethod(source, callerClass.getName(), "d", "()V"),
+				newBehaviorReferenceByMethod(source, subClass.getName(), "<init>", "(II)V")
+		));
+		assertThat(first.hasNext(), is(true));
+
+		ReferencePage<MethodEntry, MethodDefEntry> second = query.page(first.getNextCursor(), 2);
+		assertThat(second.getReferences(), contains(
+				newBehaviorReferenceByMethod(source, subsubClass.getName(), "<init>", "(I)V")
+		));
+		assertThat(second.hasNext(), is(false));
+
+		assertThat(query.fromClass(subClass).stream().collect(Collectors.toList()), contains(
+				newBehaviorReferenceByMethod(source, subClass.getName(), "<init>", "(II)V")
+		));
+		assertThat(query.fromPackage("cuchaz/enigma").count(), is(0));
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	public void subIntInt() {
@@ -18,6 +18,7 @@ import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.IndexEntryResolver;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
@@ -28,6 +29,8 @@ import org.objectweb.asm.Opcodes;
 
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import static cuchaz.enigma.TestEntryFactory.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -67,21 +70,25 @@ public class TestJarIndexInheritanceTree {
 		assertThat(index.getAncestors(baseClass), is(empty()));
 		assertThat(index.getChildren(baseClass), containsInAnyOrder(subClassA, subClassB
 		));
+		assertThat(index.getDescendants(baseClass), containsInAnyOrder(subClassA, subClassAA, subClassB));
 
 		// subclass a
 		assertThat(index.getParents(subClassA), contains(baseClass));
 		assertThat(index.getAncestors(subClassA), containsInAnyOrder(baseClass));
 		assertThat(index.getChildren(subClassA), contains(subClassAA));
+		assertThat(index.getDescendants(subClassA), containsInAnyOrder(subClassAA));
 
 		// subclass aa
 		assertThat(index.getParents(subClassAA), contains(subClassA));
 		assertThat(index.getAncestors(subClassAA), containsInAnyOrder(subClassA, baseClass));
 		assertThat(index.getChildren(subClassAA), is(empty()));
+		assertThat(index.getDescendants(subClassAA), is(empty()));
 
 		// subclass b
 		assertThat(index.getParents(subClassB), contains(baseClass));
 		assertThat(index.getAncestors(subClassB), containsInAnyOrder(baseClass));
 		assertThat(index.getChildren(subClassB), is(empty()));
+		assertThat(index.getDescendants(subClassB), is(empty()));
 	}
 
 	@Test
@@ -133,6 +140,36 @@ public class TestJarIndexInheritanceTree {
 		assertThat(entries, containsInAnyOrder(newMethod(subClassB, "b", "()V")));
 	}
 
+	@Test
+	public void cachedResolution() {
+		IndexEntryResolver resolver = new IndexEntryResolver(index);
+		MethodEntry inherited = newMethod(subClassAA, "z", "()V");
+		MethodEntry declared = newMethod(baseClass, "z", "()V");
+
+		assertThat(resolver.resolveEntry(inherited, ResolutionStrategy.RESOLVE_ROOT), contains(inherited));
+
+		// the base class gains the method, but the resolver has not been told yet
+		index.getEntryIndex().indexMethod(MethodDefEntry.parse(baseClass, Opcodes.ACC_PUBLIC, "z", "()V", null));
+		assertThat(resolver.resolveEntry(inherited, ResolutionStrategy.RESOLVE_ROOT), contains(inherited));
+
+		Set<ClassEntry> changedClasses = new HashSet<>(index.getInheritanceIndex().getDescendants(baseClass));
+		changedClasses.add(baseClass);
+		resolver.invalidate(changedClasses);
+		assertThat(resolver.resolveEntry(inherited, ResolutionStrategy.RESOLVE_ROOT), contains(declared));
+
+		// invalidating everything picks up changes anywhere in the index
+		MethodEntry otherInherited = newMethod(subClassAA, "y", "()V");
+		MethodEntry otherDeclared = newMethod(subClassA, "y", "()V");
+		assertThat(resolver.resolveEntry(otherInherited, ResolutionStrategy.RESOLVE_CLOSEST), contains(otherInherited));
+
+		index.getEntryIndex().indexMethod(MethodDefEntry.parse(subClassA, Opcodes.ACC_PUBLIC, "y", "()V", null));
+		assertThat(resolver.resolveEntry(otherInherited, ResolutionStrategy.RESOLVE_CLOSEST), contains(otherInherited));
+
+		resolver.invalidateAll();
+		assertThat(resolver.resolveEntry(otherInherited, ResolutionStrategy.RESOLVE_CLOSEST), contains(otherDeclared));
+		assertThat(resolver.resolveEntry(inherited, ResolutionStrategy.RESOLVE_ROOT), contains(declared));
+	}
+
 	@Test
 	@SuppressWarnings("unchecked")
 	public void fieldReferences() {
@@ -244,4 +244,11 @@ public class TestMethodDescriptor {
 		assertThat(new MethodDescriptor("([I)V").toString(), is("([I)V"));
 		assertThat(new MethodDescriptor("([[D[[[J)V").toString(), is("([[D[[[J)V"));
 	}
+
+	@Test
+	public void parse() {
+		assertThat(MethodDescriptor.parse("(LFoo;[I)V"), is(new MethodDescriptor("(LFoo;[I)V")));
+		assertThat(MethodDescriptor.parse("(LFoo;[I)V"), is(sameInstance(MethodDescriptor.parse("(LFoo;[I)V"))));
+		assertThat(MethodDescriptor.parse("(LFoo;[I)V").getArgumentDescs().get(0), is(sameInstance(TypeDescriptor.parse("LFoo;"))));
+	}
 }
@@ -0,0 +1,47 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestMethodGroupIndex {
+	private final ClassEntry interfaceClass = newClass("a");
+	private final ClassEntry superClass = newClass("b");
+	private final ClassEntry finalImplementation = newClass("c");
+	private final MethodEntry interfaceMethod = newMethod(interfaceClass, "m", "()V");
+	private final MethodEntry superMethod = newMethod(superClass, "m", "()V");
+	private final MethodEntry finalMethod = newMethod(finalImplementation, "m", "()V");
+
+	private JarIndex createIndex() {
+		JarIndex index = JarIndex.empty();
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "a", null, "java/lang/Object", new String[0]));
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "b", null, "java/lang/Object", new String[0]));
+		// c extends b implements a, and overrides b.m as well as implementing a.m with a final method
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "c", null, "b", new String[] { "a" }));
+
+		index.indexMethod(MethodDefEntry.parse(interfaceClass, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "m", "()V", null));
+		index.indexMethod(MethodDefEntry.parse(superClass, Opcodes.ACC_PUBLIC, "m", "()V", null));
+		index.indexMethod(MethodDefEntry.parse(finalImplementation, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, "m", "()V", null));
+		index.processIndex(index);
+		return index;
+	}
+
+	@Test
+	public void finalImplementation() {
+		JarIndex index = createIndex();
+
+		assertThat(index.getMethodGroupIndex().getGroup(interfaceMethod), containsInAnyOrder(interfaceMethod, superMethod, finalMethod));
+		assertThat(index.getMethodGroupIndex().getGroup(finalMethod), containsInAnyOrder(interfaceMethod, superMethod, finalMethod));
+		assertThat(index.getEntryResolver().resolveEquivalentMethods(superMethod), hasItem(finalMethod));
+		assertThat(index.getEntryResolver().resolveEntry(finalMethod, ResolutionStrategy.RESOLVE_ROOT), not(contains(finalMethod)));
+	}
+}
@@ -0,0 +1,124 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestReferenceGraph {
+	private final ClassEntry baseClass = newClass("a");
+	private final ClassEntry subClass = newClass("b");
+	private final ClassEntry callerClass = newClass("c");
+	private final MethodEntry baseMethod = newMethod(baseClass, "m", "()V");
+	private final MethodEntry inheritedMethod = newMethod(subClass, "m", "()V");
+	private final MethodEntry constructor = newMethod(subClass, "<init>", "()V");
+	private final MethodDefEntry caller = MethodDefEntry.parse(callerClass, Opcodes.ACC_PUBLIC, "x", "()V", null);
+	private final MethodDefEntry otherCaller = MethodDefEntry.parse(callerClass, Opcodes.ACC_PUBLIC, "y", "()V", null);
+
+	@Test
+	public void referencesRoundTrip() {
+		Multimap<MethodEntry, EntryReference<MethodEntry, MethodDefEntry>> referencesToMethods = HashMultimap.create();
+		for (EntryReference<MethodEntry, MethodDefEntry> reference : Arrays.<EntryReference<MethodEntry, MethodDefEntry>>asList(
+				new EntryReference<>(baseMethod, "m", caller, ReferenceTargetType.classType(subClass)),
+				new EntryReference<>(baseMethod, null, otherCaller, ReferenceTargetType.none()),
+				new EntryReference<>(constructor, "super", caller, ReferenceTargetType.uninitialized()),
+				new EntryReference<>(inheritedMethod, "m", null)
+		)) {
+			referencesToMethods.put(reference.entry, reference);
+		}
+		Set<String> expected = describe(referencesToMethods.asMap());
+		assertThat(expected, hasItems("a.m()V <- c.y()V unnamed (none)", "b.<init>()V <- c.x()V unnamed (uninitialized)"));
+
+		ReferenceGraph graph = newGraph(referencesToMethods);
+		assertThat(describe(graph.referencesToMethods.asMap()), is(expected));
+		assertThat(graph.referencesToMethods.get(baseMethod), hasSize(2));
+		assertThat(graph.referencesToMethods.get(newMethod(callerClass, "x", "()V")), is(empty()));
+
+		// unpacking the graph and packing it again, as reindexing does, keeps every reference as it was
+		Multimap<MethodEntry, EntryReference<MethodEntry, MethodDefEntry>> expanded = HashMultimap.create();
+		graph.referencesToMethods.asMap().forEach(expanded::putAll);
+		assertThat(describe(newGraph(expanded).referencesToMethods.asMap()), is(expected));
+	}
+
+	@Test
+	public void duplicateAndRemappedEdges() {
+		JarIndex index = JarIndex.empty();
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "a", null, "java/lang/Object", new String[0]));
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "b", null, "a", new String[0]));
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "c", null, "java/lang/Object", new String[0]));
+		index.indexMethod(MethodDefEntry.parse(baseClass, Opcodes.ACC_PUBLIC, "m", "()V", null));
+		index.indexMethod(caller);
+		index.indexMethod(otherCaller);
+
+		// the same call twice, then once more through the subclass, which resolves to the same declaration
+		index.indexMethodReference(caller, baseMethod, ReferenceTargetType.none());
+		index.indexMethodReference(caller, baseMethod, ReferenceTargetType.none());
+		index.indexMethodReference(caller, inheritedMethod, ReferenceTargetType.classType(subClass));
+		index.indexMethodReference(otherCaller, inheritedMethod, ReferenceTargetType.classType(subClass));
+		index.processIndex(index);
+
+		ReferenceIndex referenceIndex = index.getReferenceIndex();
+		assertThat(getContexts(referenceIndex.getReferencesToMethod(baseMethod)), containsInAnyOrder(caller, otherCaller));
+		assertThat(referenceIndex.getReferencesToMethod(inheritedMethod), is(empty()));
+		assertThat(referenceIndex.getMethodsReferencedBy(caller), contains(baseMethod));
+		assertThat(referenceIndex.getMethodsReferencedBy(otherCaller), contains(baseMethod));
+
+		// dropping a context unpacks the remapped graph, and compacting it again keeps the rest
+		referenceIndex.removeContexts(Collections.singleton(callerClass));
+		referenceIndex.compact();
+		assertThat(referenceIndex.getReferencesToMethod(baseMethod), is(empty()));
+		assertThat(referenceIndex.getMethodsReferencedBy(caller), is(empty()));
+	}
+
+	@Test
+	public void reprocessingKeepsEdges() {
+		JarIndex index = JarIndex.empty();
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "a", null, "java/lang/Object", new String[0]));
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "b", null, "a", new String[0]));
+		index.indexClass(ClassDefEntry.parse(Opcodes.ACC_PUBLIC, "c", null, "java/lang/Object", new String[0]));
+		index.indexMethod(MethodDefEntry.parse(baseClass, Opcodes.ACC_PUBLIC, "m", "()V", null));
+		index.indexMethod(caller);
+		index.indexMethodReference(caller, inheritedMethod, ReferenceTargetType.classType(subClass));
+		index.processIndex(index);
+
+		Set<String> processed = describe(Collections.singletonMap(baseMethod, index.getReferenceIndex().getReferencesToMethod(baseMethod)));
+		assertThat(processed, contains("a.m()V <- c.x()V named b"));
+
+		index.processIndex(index);
+		assertThat(describe(Collections.singletonMap(baseMethod, index.getReferenceIndex().getReferencesToMethod(baseMethod))), is(processed));
+	}
+
+	private static ReferenceGraph newGraph(Multimap<MethodEntry, EntryReference<MethodEntry, MethodDefEntry>> referencesToMethods) {
+		return new ReferenceGraph(HashMultimap.create(), referencesToMethods, HashMultimap.create(), HashMultimap.create(), HashMultimap.create(), HashMultimap.create());
+	}
+
+	private static Set<MethodDefEntry> getContexts(Collection<EntryReference<MethodEntry, MethodDefEntry>> references) {
+		return references.stream().map(reference -> reference.context).collect(Collectors.toSet());
+	}
+
+	// references compare equal by entry and context alone, so the other fields are spelled out
+	private static <E extends Entry<?>, C extends Entry<?>> Set<String> describe(Map<E, ? extends Collection<EntryReference<E, C>>> references) {
+		return references.values().stream()
+				.flatMap(Collection::stream)
+				.map(reference -> reference.entry + " <- " + reference.context + " " + (reference.isNamed() ? "named" : "unnamed") + " " + reference.targetType)
+				.collect(Collectors.toSet());
+	}
+}